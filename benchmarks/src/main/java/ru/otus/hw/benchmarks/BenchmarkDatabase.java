@@ -0,0 +1,29 @@
+package ru.otus.hw.benchmarks;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.UUID;
+
+/**
+ * Поднимает отдельную in-memory базу H2 со схемой из модуля hw05-jdbc-hard.
+ */
+public final class BenchmarkDatabase {
+    private static final int DEFAULT_POOL_SIZE = 4;
+
+    private BenchmarkDatabase() {
+    }
+
+    public static HikariDataSource create() {
+        return create("", DEFAULT_POOL_SIZE);
+    }
+
+    public static HikariDataSource create(String urlSettings, int poolSize) {
+        var dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1" + urlSettings);
+        dataSource.setMaximumPoolSize(poolSize);
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        return dataSource;
+    }
+}
@@ -0,0 +1,100 @@
+package ru.otus.hw.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.otus.hw.dto.BookBatchUpdateResult;
+import ru.otus.hw.dto.BookUpdateDto;
+import ru.otus.hw.repositories.JdbcAuthorRepository;
+import ru.otus.hw.repositories.JdbcBookRepository;
+import ru.otus.hw.repositories.JdbcGenreRepository;
+import ru.otus.hw.services.BookServiceImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Перетегирование пачки книг: по одной через {@code BookService.update} (своя транзакция и две проверки
+ * ссылок на каждую книгу) и одним вызовом {@code BookService.updateAll} с пакетами JDBC.
+ * Каждый вызов меняет жанры следующих {@code batchSize} книг каталога.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BookBatchUpdateBenchmark {
+
+    @Param("1000")
+    int batchSize;
+
+    private BookServiceImpl bookService;
+
+    private TransactionTemplate transactionTemplate;
+
+    private int booksCount;
+
+    private int genresCount;
+
+    private int authorsCount;
+
+    private int cursor;
+
+    private int round;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        booksCount = catalog.booksCount;
+        genresCount = catalog.genresCount;
+        authorsCount = catalog.authorsCount;
+        transactionTemplate = catalog.transactionTemplate;
+        // Поиск и снимок каталога при изменении не нужны, события никуда не отправляются
+        bookService = new BookServiceImpl(new JdbcAuthorRepository(catalog.jdbc),
+                new JdbcGenreRepository(catalog.jdbc), new JdbcBookRepository(catalog.jdbc), null, null,
+                event -> { }, transactionTemplate);
+    }
+
+    @Benchmark
+    public int perItemUpdate() {
+        int updated = 0;
+        for (BookUpdateDto update : nextUpdates()) {
+            bookService.update(update.id(), update.title(), update.authorId(), update.genresIds());
+            updated++;
+        }
+        return updated;
+    }
+
+    @Benchmark
+    public BookBatchUpdateResult batchUpdate() {
+        List<BookUpdateDto> updates = nextUpdates();
+        return transactionTemplate.execute(status -> bookService.updateAll(updates));
+    }
+
+    private List<BookUpdateDto> nextUpdates() {
+        List<BookUpdateDto> updates = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            long id = cursor++ % booksCount + 1;
+            long genreId = (id + round) % genresCount + 1;
+            updates.add(new BookUpdateDto(id, "BookTitle_" + id, id % authorsCount + 1,
+                    Set.of(genreId, genreId % genresCount + 1)));
+        }
+        if (cursor >= booksCount) {
+            cursor = 0;
+            round++;
+        }
+        return updates;
+    }
+}
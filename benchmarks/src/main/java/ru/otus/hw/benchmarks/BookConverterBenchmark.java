@@ -0,0 +1,53 @@
+package ru.otus.hw.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.otus.hw.converters.AuthorConverter;
+import ru.otus.hw.converters.BookConverter;
+import ru.otus.hw.converters.GenreConverter;
+import ru.otus.hw.models.Author;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BookConverterBenchmark {
+
+    @Param("5")
+    private int genresPerBook;
+
+    private BookConverter converter;
+
+    private Book book;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        converter = new BookConverter(new AuthorConverter(), new GenreConverter());
+        book = new Book(1L, "BookTitle_1", new Author(1L, "Author_1"),
+                LongStream.rangeClosed(1, genresPerBook)
+                        .mapToObj(id -> new Genre(id, "Genre_" + id))
+                        .toList());
+    }
+
+    @Benchmark
+    public String bookToString() {
+        return converter.bookToString(book);
+    }
+}
@@ -0,0 +1,74 @@
+package ru.otus.hw.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.otus.hw.models.Author;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.repositories.JdbcBookRepository;
+import ru.otus.hw.repositories.JdbcGenreRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Удаление по id измеряется партиями: перед каждой итерацией добавляется ровно столько книг,
+ * сколько будет удалено за итерацию.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, batchSize = BookDeleteBenchmark.BATCH_SIZE)
+@Measurement(iterations = 10, batchSize = BookDeleteBenchmark.BATCH_SIZE)
+public class BookDeleteBenchmark {
+    static final int BATCH_SIZE = 1000;
+
+    private JdbcBookRepository repository;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Author author;
+
+    private List<Genre> genres;
+
+    private List<Long> idsToDelete;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        repository = new JdbcBookRepository(catalog.jdbc);
+        transactionTemplate = catalog.transactionTemplate;
+        author = new Author(1L, "Author_1");
+        genres = new JdbcGenreRepository(catalog.jdbc).findAll().subList(0, catalog.genresPerBook);
+    }
+
+    @Setup(Level.Iteration)
+    public void addBooksToDelete() {
+        List<Book> books = IntStream.range(0, BATCH_SIZE)
+                .mapToObj(i -> new Book(0L, "BookToDelete_" + i, author, genres))
+                .toList();
+        List<Book> saved = transactionTemplate.execute(status -> repository.insertAll(books));
+        idsToDelete = new ArrayList<>(saved.stream().map(Book::getId).toList());
+        cursor = 0;
+    }
+
+    @Benchmark
+    public void deleteById() {
+        long id = idsToDelete.get(cursor++);
+        transactionTemplate.executeWithoutResult(status -> repository.deleteById(id));
+    }
+}
@@ -0,0 +1,92 @@
+package ru.otus.hw.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.otus.hw.models.Author;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.repositories.JdbcBookRepository;
+import ru.otus.hw.repositories.JdbcGenreRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Удаление большой партии книг в одной транзакции: порциями {@code in (...)} через deleteAllByIds,
+ * по одной книге через deleteById с каскадом и прежней схемой "сначала связи, потом книга".
+ * Перед каждой итерацией добавляется purgeCount новых книг.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class BookPurgeBenchmark {
+
+    @Param("100000")
+    int purgeCount;
+
+    private NamedParameterJdbcTemplate jdbc;
+
+    private JdbcBookRepository repository;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Author author;
+
+    private List<Genre> genres;
+
+    private List<Long> idsToDelete;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        jdbc = catalog.jdbc;
+        repository = new JdbcBookRepository(jdbc);
+        transactionTemplate = catalog.transactionTemplate;
+        author = new Author(1L, "Author_1");
+        genres = new JdbcGenreRepository(catalog.jdbc).findAll().subList(0, catalog.genresPerBook);
+    }
+
+    @Setup(Level.Iteration)
+    public void addBooksToDelete() {
+        List<Book> books = IntStream.range(0, purgeCount)
+                .mapToObj(i -> new Book(0L, "BookToPurge_" + i, author, genres))
+                .toList();
+        List<Book> saved = transactionTemplate.execute(status -> repository.insertAll(books));
+        idsToDelete = saved.stream().map(Book::getId).toList();
+    }
+
+    @Benchmark
+    public Integer purgeByIds() {
+        return transactionTemplate.execute(status -> repository.deleteAllByIds(idsToDelete));
+    }
+
+    @Benchmark
+    public void purgeOneByOne() {
+        transactionTemplate.executeWithoutResult(status -> idsToDelete.forEach(repository::deleteById));
+    }
+
+    @Benchmark
+    public void legacyPurgeOneByOne() {
+        transactionTemplate.executeWithoutResult(status -> idsToDelete.forEach(id -> {
+            Map<String, Object> params = Map.of("id", id);
+            jdbc.update("delete from books_genres where book_id = :id", params);
+            jdbc.update("delete from books where id = :id", params);
+        }));
+    }
+}
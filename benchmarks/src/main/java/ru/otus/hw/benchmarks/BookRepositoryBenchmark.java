@@ -0,0 +1,58 @@
+package ru.otus.hw.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.otus.hw.models.Author;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.repositories.JdbcBookRepository;
+import ru.otus.hw.repositories.JdbcGenreRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BookRepositoryBenchmark {
+
+    private JdbcBookRepository repository;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Author author;
+
+    private List<Genre> genres;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        repository = new JdbcBookRepository(catalog.jdbc);
+        transactionTemplate = catalog.transactionTemplate;
+        author = new Author(1L, "Author_1");
+        genres = new JdbcGenreRepository(catalog.jdbc).findAll().subList(0, catalog.genresPerBook);
+    }
+
+    @Benchmark
+    public List<Book> findAll() {
+        return repository.findAll();
+    }
+
+    @Benchmark
+    public Book save() {
+        var book = new Book(0L, "NewBook", author, genres);
+        return transactionTemplate.execute(status -> repository.save(book));
+    }
+}
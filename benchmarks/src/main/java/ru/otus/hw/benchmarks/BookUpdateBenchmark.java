@@ -0,0 +1,110 @@
+package ru.otus.hw.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.repositories.JdbcBookRepository;
+import ru.otus.hw.repositories.JdbcGenreRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Сравнивает обновление книги с пересчетом разницы жанров и прежнюю схему
+ * "удалить все связи и вставить заново". Каждое обновление заменяет один жанр книги.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BookUpdateBenchmark {
+
+    private NamedParameterJdbcTemplate jdbc;
+
+    private JdbcBookRepository repository;
+
+    private TransactionTemplate transactionTemplate;
+
+    private List<Book> books;
+
+    private Map<Long, Genre> genresById;
+
+    private int genresCount;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        jdbc = catalog.jdbc;
+        genresCount = catalog.genresCount;
+        repository = new JdbcBookRepository(jdbc);
+        transactionTemplate = catalog.transactionTemplate;
+        books = repository.findAll();
+        genresById = new JdbcGenreRepository(jdbc).findAll().stream()
+                .collect(Collectors.toMap(Genre::getId, Function.identity()));
+    }
+
+    @Benchmark
+    public Book diffUpdate() {
+        var book = nextEditedBook();
+        return transactionTemplate.execute(status -> repository.save(book));
+    }
+
+    @Benchmark
+    public Book legacyUpdate() {
+        var book = nextEditedBook();
+        return transactionTemplate.execute(status -> legacySave(book));
+    }
+
+    private Book nextEditedBook() {
+        var book = books.get(cursor++ % books.size());
+        List<Genre> genres = new ArrayList<>(book.getGenres());
+        long replacedId = genres.remove(0).getId();
+        long candidateId = replacedId;
+        do {
+            candidateId = candidateId % genresCount + 1;
+        } while (containsGenre(genres, candidateId) || candidateId == replacedId);
+        genres.add(genresById.get(candidateId));
+        book.setGenres(genres);
+        return book;
+    }
+
+    private static boolean containsGenre(List<Genre> genres, long genreId) {
+        return genres.stream().anyMatch(genre -> genre.getId() == genreId);
+    }
+
+    private Book legacySave(Book book) {
+        jdbc.update("update books set title=:bookTitle, author_id=:authorId where id=:bookId",
+                new MapSqlParameterSource()
+                        .addValue("bookId", book.getId())
+                        .addValue("bookTitle", book.getTitle())
+                        .addValue("authorId", book.getAuthor().getId()));
+        jdbc.update("delete from books_genres where book_id = :id", Map.of("id", book.getId()));
+        jdbc.batchUpdate("insert into books_genres (book_id, genre_id) values (:bookId, :genreId)",
+                book.getGenres().stream()
+                        .map(genre -> new MapSqlParameterSource()
+                                .addValue("bookId", book.getId())
+                                .addValue("genreId", genre.getId()))
+                        .toArray(MapSqlParameterSource[]::new));
+        return book;
+    }
+}
@@ -0,0 +1,63 @@
+package ru.otus.hw.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.otus.hw.dto.BookFacets;
+import ru.otus.hw.dto.GenreMatch;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.repositories.JdbcBookRepository;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Первая страница книг автора и жанров и подсчет книг по авторам и жанрам.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BrowseBenchmark {
+    private static final int LIMIT = 100;
+
+    private static final Set<Long> GENRE_IDS = Set.of(1L, 2L);
+
+    private JdbcBookRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        repository = new JdbcBookRepository(catalog.jdbc);
+    }
+
+    @Benchmark
+    public List<Book> findByAuthor() {
+        return repository.findByAuthor(1, 0, LIMIT);
+    }
+
+    @Benchmark
+    public List<Book> findByAnyGenres() {
+        return repository.findByGenres(GENRE_IDS, GenreMatch.ANY, 0, LIMIT);
+    }
+
+    @Benchmark
+    public List<Book> findByAllGenres() {
+        return repository.findByGenres(GENRE_IDS, GenreMatch.ALL, 0, LIMIT);
+    }
+
+    @Benchmark
+    public BookFacets findFacets() {
+        return repository.findFacets();
+    }
+}
@@ -0,0 +1,43 @@
+package ru.otus.hw.benchmarks;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+
+/**
+ * Заполняет пустую схему синтетическим каталогом.
+ * Книга с id = x получает автора mod(x, authors) + 1 и жанры mod(x + k, genres) + 1 для k < genresPerBook.
+ */
+public final class CatalogGenerator {
+
+    private CatalogGenerator() {
+    }
+
+    public static void generate(NamedParameterJdbcOperations jdbc, int authors, int genres,
+                                int books, int genresPerBook) {
+        if (genresPerBook > genres) {
+            throw new IllegalArgumentException("Genres per book must not exceed genres count");
+        }
+        var params = new MapSqlParameterSource()
+                .addValue("authors", authors)
+                .addValue("genres", genres)
+                .addValue("books", books);
+        jdbc.update("insert into authors(id, full_name) " +
+                "select x, 'Author_' || x from system_range(1, :authors)", params);
+        jdbc.update("insert into genres(id, name) " +
+                "select x, 'Genre_' || x from system_range(1, :genres)", params);
+        jdbc.update("insert into books(id, title, author_id) " +
+                "select x, 'BookTitle_' || x, mod(x, :authors) + 1 from system_range(1, :books)", params);
+        for (int k = 0; k < genresPerBook; k++) {
+            jdbc.update("insert into books_genres(book_id, genre_id) " +
+                    "select x, mod(x + :k, :genres) + 1 from system_range(1, :books)", params.addValue("k", k));
+        }
+        restartIdentity(jdbc, "authors", authors);
+        restartIdentity(jdbc, "genres", genres);
+        restartIdentity(jdbc, "books", books);
+    }
+
+    private static void restartIdentity(NamedParameterJdbcOperations jdbc, String table, int lastId) {
+        jdbc.getJdbcOperations().execute(
+                "alter table %s alter column id restart with %d".formatted(table, lastId + 1));
+    }
+}
@@ -0,0 +1,120 @@
+package ru.otus.hw.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Открытие файлового каталога с настройками профиля persistent до первой страницы книг.
+ * coldOpen - первый запуск со схемой в пустом каталоге, warmOpen - повторное открытие заполненного каталога.
+ * Каталог создается один раз на trial, для больших объемов: {@code -p booksCount=5000000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class CatalogOpenBenchmark {
+    private static final String URL_SETTINGS = ";CACHE_SIZE=262144;QUERY_CACHE_SIZE=64;MAX_COMPACT_TIME=2000";
+
+    private static final String FIRST_PAGE_SQL = "select books.id, books.title, authors.full_name " +
+            "from (select * from books order by id limit 100) books " +
+            "left join authors on books.author_id = authors.id";
+
+    @Param("1000000")
+    int booksCount;
+
+    @Param("5")
+    int genresPerBook;
+
+    private Path catalogDir;
+
+    private Path coldDir;
+
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void createCatalog() throws IOException {
+        catalogDir = Files.createTempDirectory("catalog");
+        var dataSource = new SingleConnectionDataSource(url(catalogDir), true);
+        try {
+            ScriptUtils.executeSqlScript(dataSource.getConnection(), new ClassPathResource("schema.sql"));
+            CatalogGenerator.generate(new NamedParameterJdbcTemplate(dataSource), 100, 50, booksCount, genresPerBook);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            dataSource.destroy();
+        }
+        System.out.printf("%nCatalog file size: %d MB%n",
+                Files.size(catalogDir.resolve("library.mv.db")) / (1024 * 1024));
+    }
+
+    @Setup(Level.Invocation)
+    public void createColdDir() throws IOException {
+        coldDir = Files.createTempDirectory("catalog-cold");
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeCatalog() throws SQLException, IOException {
+        connection.close();
+        FileSystemUtils.deleteRecursively(coldDir);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCatalog() throws IOException {
+        FileSystemUtils.deleteRecursively(catalogDir);
+    }
+
+    @Benchmark
+    public int coldOpen() throws SQLException {
+        connection = DriverManager.getConnection(url(coldDir));
+        ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema.sql"));
+        return readFirstPage();
+    }
+
+    @Benchmark
+    public int warmOpen() throws SQLException {
+        connection = DriverManager.getConnection(url(catalogDir));
+        return readFirstPage();
+    }
+
+    private int readFirstPage() throws SQLException {
+        int rows = 0;
+        try (var statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(FIRST_PAGE_SQL)) {
+            while (resultSet.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static String url(Path dir) {
+        return "jdbc:h2:file:" + dir.resolve("library") + URL_SETTINGS;
+    }
+}
@@ -0,0 +1,51 @@
+package ru.otus.hw.benchmarks;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Общий для бенчмарков синтетический каталог. Размер задается параметрами, например
+ * {@code -p booksCount=100000 -p genresPerBook=3}.
+ */
+@State(Scope.Benchmark)
+public class CatalogState {
+
+    @Param("100")
+    int authorsCount;
+
+    @Param("50")
+    int genresCount;
+
+    @Param("10000")
+    int booksCount;
+
+    @Param("5")
+    int genresPerBook;
+
+    HikariDataSource dataSource;
+
+    NamedParameterJdbcTemplate jdbc;
+
+    TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = BenchmarkDatabase.create();
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+        CatalogGenerator.generate(jdbc, authorsCount, genresCount, booksCount, genresPerBook);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+}
@@ -0,0 +1,69 @@
+package ru.otus.hw.benchmarks;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.repositories.JdbcBookRepository;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузка из нескольких потоков на поиск книги по id при разных настройках пула
+ * и кэша разобранных запросов H2 (QUERY_CACHE_SIZE).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ConcurrentQueryBenchmark {
+
+    @Param({";QUERY_CACHE_SIZE=0", ";QUERY_CACHE_SIZE=64"})
+    private String urlSettings;
+
+    @Param({"2", "8"})
+    private int poolSize;
+
+    @Param("10000")
+    private int booksCount;
+
+    private HikariDataSource dataSource;
+
+    private JdbcBookRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = BenchmarkDatabase.create(urlSettings, poolSize);
+        var jdbc = new NamedParameterJdbcTemplate(dataSource);
+        CatalogGenerator.generate(jdbc, 100, 50, booksCount, 5);
+        repository = new JdbcBookRepository(jdbc);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Optional<Book> findById() {
+        return repository.findById(ThreadLocalRandom.current().nextLong(1, booksCount + 1));
+    }
+}
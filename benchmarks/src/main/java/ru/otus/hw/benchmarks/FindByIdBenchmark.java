@@ -0,0 +1,111 @@
+package ru.otus.hw.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.otus.hw.models.Author;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.repositories.JdbcBookRepository;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнивает загрузку книги по id с прежней реализацией, которая пересобирала книгу на каждой строке жанра.
+ * Выделение памяти на вызов показывает включенный в {@link BenchmarkRunner} профилировщик gc.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FindByIdBenchmark {
+
+    private NamedParameterJdbcTemplate jdbc;
+
+    private int booksCount;
+
+    private JdbcBookRepository repository;
+
+    private long nextId;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        jdbc = catalog.jdbc;
+        booksCount = catalog.booksCount;
+        repository = new JdbcBookRepository(jdbc);
+    }
+
+    @Benchmark
+    public Optional<Book> findById() {
+        return repository.findById(nextId());
+    }
+
+    @Benchmark
+    public Optional<Book> legacyFindById() {
+        Book book = jdbc.query("select " +
+                "books.id as bookId," +
+                "books.author_id as author," +
+                "books.title as title," +
+                "authors.full_name as fullName, " +
+                "genres.id as genreId, " +
+                "genres.name as genreName " +
+                "from books  left join authors on " +
+                "books.author_id = authors.id " +
+                "inner join books_genres on books.id = books_genres.book_id " +
+                "inner join genres on genres.id = books_genres.genre_id " +
+                "where books.id = :id", new MapSqlParameterSource().addValue("id", nextId()),
+                new LegacyBookResultSetExtractor());
+        return Optional.ofNullable(book);
+    }
+
+    private long nextId() {
+        nextId = nextId % booksCount + 1;
+        return nextId;
+    }
+
+    private static class LegacyBookResultSetExtractor implements ResultSetExtractor<Book> {
+
+        @Override
+        public Book extractData(ResultSet rs) {
+            try {
+                Book book = null;
+                if (!rs.isBeforeFirst()) {
+                    return book;
+                }
+                List<Genre> genres = new ArrayList<>();
+                while (rs.next()) {
+                    String id = rs.getString("bookId");
+                    String authorId = rs.getString("author");
+                    String title = rs.getString("title");
+                    String fullName = rs.getString("fullName");
+                    book = Book.builder().id(Long.parseLong(id))
+                            .author(new Author(Long.parseLong(authorId), fullName)).title(title).build();
+                    String genreId = rs.getString("genreId");
+                    String genreName = rs.getString("genreName");
+                    genres.add(new Genre(Long.parseLong(genreId), genreName));
+                }
+                book.setGenres(genres);
+                return book;
+            } catch (Exception ex) {
+                return null;
+            }
+        }
+    }
+}
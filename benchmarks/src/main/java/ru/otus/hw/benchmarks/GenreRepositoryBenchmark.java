@@ -0,0 +1,45 @@
+package ru.otus.hw.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.repositories.JdbcGenreRepository;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GenreRepositoryBenchmark {
+
+    private JdbcGenreRepository repository;
+
+    private Set<Long> genreIds;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        repository = new JdbcGenreRepository(catalog.jdbc);
+        genreIds = LongStream.rangeClosed(1, catalog.genresPerBook).boxed().collect(Collectors.toSet());
+    }
+
+    @Benchmark
+    public List<Genre> findAllByIds() {
+        return repository.findAllByIds(genreIds);
+    }
+}
@@ -0,0 +1,80 @@
+package ru.otus.hw.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.otus.hw.dto.BookSummary;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.repositories.JdbcBookRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Страница списка книг: полные книги с жанрами, краткие описания и книги с ленивыми жанрами,
+ * к которым не обращались или обратились после загрузки. Выделение памяти видно в gc.alloc.rate.norm.
+ * Страницы перебираются по кругу, чтобы H2 не отдавал повторно результат того же запроса.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProjectionBenchmark {
+    private static final int LIMIT = 100;
+
+    private JdbcBookRepository repository;
+
+    private TransactionTemplate transactionTemplate;
+
+    private int pagesCount;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        repository = new JdbcBookRepository(catalog.jdbc);
+        transactionTemplate = catalog.transactionTemplate;
+        pagesCount = catalog.booksCount / LIMIT;
+    }
+
+    private long nextAfterId() {
+        return (long) (cursor++ % pagesCount) * LIMIT;
+    }
+
+    @Benchmark
+    public List<Book> eagerPage() {
+        return repository.findPage(nextAfterId(), LIMIT);
+    }
+
+    @Benchmark
+    public List<BookSummary> summaryPage() {
+        return repository.findSummaryPage(nextAfterId(), LIMIT);
+    }
+
+    @Benchmark
+    public List<Book> lazyPageUntouched() {
+        return transactionTemplate.execute(status -> repository.findPageWithLazyGenres(nextAfterId(), LIMIT));
+    }
+
+    @Benchmark
+    public int lazyPageTouched() {
+        return transactionTemplate.execute(status -> {
+            int genres = 0;
+            for (Book book : repository.findPageWithLazyGenres(nextAfterId(), LIMIT)) {
+                genres += book.getGenres().size();
+            }
+            return genres;
+        });
+    }
+}
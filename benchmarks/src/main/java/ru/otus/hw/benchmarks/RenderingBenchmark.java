@@ -0,0 +1,101 @@
+package ru.otus.hw.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.impl.DumbTerminal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.otus.hw.converters.AuthorConverter;
+import ru.otus.hw.converters.BookConverter;
+import ru.otus.hw.converters.GenreConverter;
+import ru.otus.hw.models.Author;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.rendering.OutputFormat;
+import ru.otus.hw.rendering.RowWriter;
+import ru.otus.hw.rendering.TerminalRenderer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Вывод списка книг в терминал: joinedPlain - прежняя склейка всех строк в одну перед печатью,
+ * rendered - построчная запись через TerminalRenderer в выбранном формате.
+ * Терминал пишет в пустой поток, поэтому замеряется только подготовка текста и кодирование.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RenderingBenchmark {
+
+    @Param("10000")
+    private int booksCount;
+
+    @Param({"PLAIN", "TABLE", "JSON"})
+    private OutputFormat format;
+
+    private Terminal terminal;
+
+    private BookConverter converter;
+
+    private TerminalRenderer renderer;
+
+    private List<Book> books;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        terminal = new DumbTerminal("benchmark", "dumb", InputStream.nullInputStream(),
+                OutputStream.nullOutputStream(), StandardCharsets.UTF_8);
+        converter = new BookConverter(new AuthorConverter(), new GenreConverter());
+        renderer = new TerminalRenderer(terminal, new ObjectMapper());
+        books = LongStream.rangeClosed(1, booksCount)
+                .mapToObj(id -> new Book(id, "BookTitle_" + id, new Author(id % 100 + 1, "Author_" + (id % 100 + 1)),
+                        LongStream.rangeClosed(1, 5)
+                                .mapToObj(genreId -> new Genre(genreId, "Genre_" + genreId))
+                                .toList()))
+                .toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        terminal.close();
+    }
+
+    @Benchmark
+    public int joinedPlain() {
+        String output = books.stream()
+                .map(converter::bookToString)
+                .collect(Collectors.joining("," + System.lineSeparator()));
+        terminal.writer().println(output);
+        terminal.writer().flush();
+        return output.length();
+    }
+
+    @Benchmark
+    public long rendered() {
+        try (RowWriter<Book> rows = renderer.open(format, converter.bookLayout())) {
+            books.forEach(rows::write);
+            return rows.rows();
+        }
+    }
+}
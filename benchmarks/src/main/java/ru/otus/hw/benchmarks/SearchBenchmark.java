@@ -0,0 +1,49 @@
+package ru.otus.hw.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.otus.hw.repositories.JdbcBookRepository;
+import ru.otus.hw.search.BookSearchIndex;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Распределение времени поиска по индексу, p99 смотреть на каталоге в миллион книг:
+ * {@code SearchBenchmark -p booksCount=1000000 -p genresPerBook=2}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SearchBenchmark {
+    private static final int LIMIT = 20;
+
+    @Param({"booktitle", "booktitle_9876", "author_7 genre_3", "book 99"})
+    String query;
+
+    private BookSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        index = new BookSearchIndex(new JdbcBookRepository(catalog.jdbc),
+                catalog.transactionTemplate.getTransactionManager());
+        index.search(query, LIMIT);
+    }
+
+    @Benchmark
+    public long[] search() {
+        return index.search(query, LIMIT);
+    }
+}
@@ -0,0 +1,98 @@
+package ru.otus.hw.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.otus.hw.dto.BookFacets;
+import ru.otus.hw.dto.GenreMatch;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.repositories.JdbcBookRepository;
+import ru.otus.hw.repositories.JdbcCatalogSnapshotRepository;
+import ru.otus.hw.snapshot.CatalogFilter;
+import ru.otus.hw.snapshot.CatalogSnapshot;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отчеты по всему каталогу: подсчет книг с парой жанров через findAll и по колоночному снимку,
+ * число книг по авторам и жанрам запросом и по снимку, полная загрузка снимка и слияние с одной измененной книгой.
+ * Пары жанров перебираются по кругу. Выделение памяти видно в gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SnapshotBenchmark {
+    private JdbcBookRepository bookRepository;
+
+    private JdbcCatalogSnapshotRepository snapshotRepository;
+
+    private CatalogSnapshot snapshot;
+
+    private Book changedBook;
+
+    private int genresCount;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        bookRepository = new JdbcBookRepository(catalog.jdbc);
+        snapshotRepository = new JdbcCatalogSnapshotRepository(catalog.jdbc);
+        snapshot = snapshotRepository.load();
+        changedBook = bookRepository.findById(catalog.booksCount / 2).orElseThrow();
+        genresCount = catalog.genresCount;
+    }
+
+    private Set<Long> nextGenrePair() {
+        long first = cursor++ % genresCount + 1;
+        return Set.of(first, first % genresCount + 1);
+    }
+
+    @Benchmark
+    public long findAllCountByGenres() {
+        Set<Long> genreIds = nextGenrePair();
+        return bookRepository.findAll().stream()
+                .filter(book -> book.getGenres().stream().map(Genre::getId).filter(genreIds::contains).count()
+                        == genreIds.size())
+                .count();
+    }
+
+    @Benchmark
+    public int snapshotCountByGenres() {
+        return snapshot.count(CatalogFilter.byGenres(nextGenrePair(), GenreMatch.ALL));
+    }
+
+    @Benchmark
+    public BookFacets sqlFacets() {
+        return bookRepository.findFacets();
+    }
+
+    @Benchmark
+    public BookFacets snapshotFacets() {
+        return snapshot.facets();
+    }
+
+    @Benchmark
+    public CatalogSnapshot loadSnapshot() {
+        return snapshotRepository.load();
+    }
+
+    @Benchmark
+    public CatalogSnapshot mergeOneBook() {
+        return snapshot.withChanges(List.of(changedBook), List.of());
+    }
+}
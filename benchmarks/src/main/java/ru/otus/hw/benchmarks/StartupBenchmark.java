@@ -0,0 +1,100 @@
+package ru.otus.hw.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время от запуска процесса shell до первого приглашения "shell:>".
+ * jar - обычный исполняемый jar, startup - сборка профиля startup: AOT, архив AppCDS и ленивые бины.
+ * Перед запуском соберите оба варианта: {@code mvn package} и {@code mvn -Pstartup package} в модулях
+ * hw04-spring-shell и hw05-jdbc-hard. Каталог проекта задается {@code -p projectDir=...}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+public class StartupBenchmark {
+    private static final byte[] PROMPT = "shell:>".getBytes(StandardCharsets.UTF_8);
+
+    @Param("..")
+    private String projectDir;
+
+    @Param({"hw04-spring-shell/hw04-spring-shell-1.0", "hw05-jdbc-hard/hw05-jdbc-0.0.1-SNAPSHOT"})
+    private String application;
+
+    @Param({"jar", "startup"})
+    private String build;
+
+    private List<String> command;
+
+    @Setup
+    public void createCommand() {
+        String module = application.substring(0, application.indexOf('/'));
+        String artifact = application.substring(application.indexOf('/') + 1);
+        Path target = Path.of(projectDir, module, "target");
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        command = new ArrayList<>(List.of(java));
+        Path jar;
+        if ("startup".equals(build)) {
+            command.add("-XX:SharedArchiveFile=" + target.resolve("startup/app.jsa"));
+            command.add("-Dspring.aot.enabled=true");
+            command.add("-Dspring.main.lazy-initialization=true");
+            jar = target.resolve("startup/" + artifact + "-startup.jar");
+        } else {
+            // У hw05 исполняемый jar собирается с классификатором exec, обычный jar нужен модулю benchmarks
+            Path exec = target.resolve(artifact + "-exec.jar");
+            jar = Files.exists(exec) ? exec : target.resolve(artifact + ".jar");
+        }
+        if (!Files.exists(jar)) {
+            throw new IllegalStateException("%s not found, build the module first".formatted(jar));
+        }
+        command.add("-jar");
+        command.add(jar.toString());
+    }
+
+    @Benchmark
+    public long timeToPrompt() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .start();
+        try {
+            awaitPrompt(process.getInputStream());
+            return System.nanoTime() - start;
+        } finally {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    private static void awaitPrompt(InputStream output) throws IOException {
+        int matched = 0;
+        int b;
+        while ((b = output.read()) != -1) {
+            matched = b == PROMPT[matched] ? matched + 1 : (b == PROMPT[0] ? 1 : 0);
+            if (matched == PROMPT.length) {
+                return;
+            }
+        }
+        throw new IllegalStateException("Shell exited before the prompt");
+    }
+}
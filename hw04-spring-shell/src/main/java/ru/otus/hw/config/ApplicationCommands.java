@@ -1,6 +1,7 @@
 package ru.otus.hw.config;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.shell.Availability;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
@@ -12,7 +13,7 @@ import ru.otus.hw.service.TestRunnerService;
 
 
 @ShellComponent(value = "Application Commands")
-@RequiredArgsConstructor
+@RequiredArgsConstructor(onConstructor_ = @Lazy)
 public class ApplicationCommands {
 
     private final TestRunnerService testRunnerService;
@@ -0,0 +1,104 @@
+package ru.otus.hw.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Ограниченный по размеру и времени жизни кэш сущностей по id.
+ * При переполнении вытесняется запись, к которой дольше всего не обращались.
+ * Полный список сущностей хранится отдельно и сбрасывается вместе с остальными записями.
+ * Записи не сбрасываются при изменении данных: приложение не меняет авторов и жанры, а правки
+ * в БД в обход приложения становятся видны не позже чем через ttl или после команды cache-evict.
+ */
+public class EntityCache<V> {
+    private final int maxSize;
+
+    private final long ttlMillis;
+
+    private final Clock clock;
+
+    private final Map<Long, CacheEntry<V>> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private CacheEntry<List<V>> all;
+
+    public EntityCache(int maxSize, Duration ttl, Clock clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache max size must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CacheEntry<V>> eldest) {
+                return size() > EntityCache.this.maxSize;
+            }
+        };
+    }
+
+    public synchronized Optional<V> get(long id) {
+        var entry = entries.get(id);
+        if (entry == null || isExpired(entry)) {
+            if (entry != null) {
+                entries.remove(id);
+            }
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(entry.value());
+    }
+
+    public synchronized void put(long id, V value) {
+        entries.put(id, new CacheEntry<>(value, clock.millis()));
+    }
+
+    public List<V> getAll(Supplier<List<V>> loader) {
+        synchronized (this) {
+            if (all != null && !isExpired(all)) {
+                hits.incrementAndGet();
+                return all.value();
+            }
+            misses.incrementAndGet();
+        }
+        var loaded = List.copyOf(loader.get());
+        synchronized (this) {
+            all = new CacheEntry<>(loaded, clock.millis());
+        }
+        return loaded;
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        all = null;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private boolean isExpired(CacheEntry<?> entry) {
+        return clock.millis() - entry.loadedAt() >= ttlMillis;
+    }
+
+    private record CacheEntry<T>(T value, long loadedAt) {
+    }
+}
@@ -1,14 +1,20 @@
 package ru.otus.hw.commands;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
 import ru.otus.hw.converters.AuthorConverter;
+import ru.otus.hw.converters.FacetConverter;
+import ru.otus.hw.dto.FacetCount;
+import ru.otus.hw.models.Author;
+import ru.otus.hw.rendering.RowWriter;
+import ru.otus.hw.rendering.TerminalRenderer;
 import ru.otus.hw.services.AuthorService;
+import ru.otus.hw.services.BookService;
 
-import java.util.stream.Collectors;
-
-@RequiredArgsConstructor
+@RequiredArgsConstructor(onConstructor_ = @Lazy)
 @ShellComponent
 public class AuthorCommands {
 
@@ -16,10 +22,28 @@ public class AuthorCommands {
 
     private final AuthorConverter authorConverter;
 
+    private final BookService bookService;
+
+    private final FacetConverter facetConverter;
+
+    private final TerminalRenderer terminalRenderer;
+
+    // aa --format table
     @ShellMethod(value = "Find all authors", key = "aa")
-    public String findAllAuthors() {
-        return authorService.findAll().stream()
-                .map(authorConverter::authorToString)
-                .collect(Collectors.joining("," + System.lineSeparator()));
+    public void findAllAuthors(@ShellOption(defaultValue = FormatOption.DEFAULT, help = FormatOption.HELP)
+                               String format) {
+        try (RowWriter<Author> rows = terminalRenderer.open(FormatOption.parse(format),
+                authorConverter.authorLayout())) {
+            authorService.findAll().forEach(rows::write);
+        }
+    }
+
+    @ShellMethod(value = "Find all authors with books count", key = "afc")
+    public void findAuthorFacets(@ShellOption(defaultValue = FormatOption.DEFAULT, help = FormatOption.HELP)
+                                 String format) {
+        try (RowWriter<FacetCount> rows = terminalRenderer.open(FormatOption.parse(format),
+                facetConverter.facetLayout())) {
+            bookService.findFacets().authors().forEach(rows::write);
+        }
     }
 }
@@ -1,28 +1,122 @@
 package ru.otus.hw.commands;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
 import ru.otus.hw.converters.BookConverter;
+import ru.otus.hw.converters.FacetConverter;
+import ru.otus.hw.dto.BookSummary;
+import ru.otus.hw.dto.ExportFormat;
+import ru.otus.hw.dto.GenreMatch;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.rendering.RowWriter;
+import ru.otus.hw.rendering.TerminalRenderer;
+import ru.otus.hw.services.BookExportService;
+import ru.otus.hw.services.BookImportService;
 import ru.otus.hw.services.BookService;
+import ru.otus.hw.snapshot.CatalogFilter;
 
+import java.nio.file.Path;
+import java.util.Locale;
 import java.util.Set;
-import java.util.stream.Collectors;
 
+// Зависимости команд - ленивые прокси: shell создает все команды при старте, а с
+// spring.main.lazy-initialization сервисы, пул соединений и схема БД поднимаются только к первой команде
 @SuppressWarnings({"SpellCheckingInspection", "unused"})
-@RequiredArgsConstructor
+@RequiredArgsConstructor(onConstructor_ = @Lazy)
 @ShellComponent
 public class BookCommands {
+    private static final String DEFAULT_PAGE_LIMIT = "100";
+
+    // ab по умолчанию, как и раньше, выводит все книги: строки читаются страницами по PagedRows.PAGE_SIZE
+    // и сразу уходят в терминал, поэтому размер каталога на память не влияет
+    private static final String ALL_ROWS_LIMIT = "" + Integer.MAX_VALUE;
+
+    private static final String DEFAULT_SEARCH_LIMIT = "20";
+
+    private static final String DEFAULT_IMPORT_CHUNK_SIZE = "10000";
 
     private final BookService bookService;
 
+    private final BookImportService bookImportService;
+
+    private final BookExportService bookExportService;
+
     private final BookConverter bookConverter;
 
-    @ShellMethod(value = "Find all books", key = "ab")
-    public String findAllBooks() {
-        return bookService.findAll().stream()
-                .map(bookConverter::bookToString)
-                .collect(Collectors.joining("," + System.lineSeparator()));
+    private final FacetConverter facetConverter;
+
+    private final TerminalRenderer terminalRenderer;
+
+    // ab --after 100 --limit 50 --format table
+    @ShellMethod(value = "Find all books, or a page of books with --after and --limit", key = "ab")
+    public void findAllBooks(@ShellOption(defaultValue = "0") long after,
+                             @ShellOption(defaultValue = ALL_ROWS_LIMIT) int limit,
+                             @ShellOption(defaultValue = FormatOption.DEFAULT, help = FormatOption.HELP)
+                             String format) {
+        try (RowWriter<Book> rows = terminalRenderer.open(FormatOption.parse(format), bookConverter.bookLayout())) {
+            PagedRows.forEach(after, limit, bookService::findPageWithBatchedGenres, Book::getId, rows::write);
+        }
+    }
+
+    // abs --after 100 --limit 50 --format json
+    @ShellMethod(value = "Find books page by page: id, title and author only", key = "abs")
+    public void findBookSummaries(@ShellOption(defaultValue = "0") long after,
+                                  @ShellOption(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+                                  @ShellOption(defaultValue = FormatOption.DEFAULT, help = FormatOption.HELP)
+                                  String format) {
+        try (RowWriter<BookSummary> rows = terminalRenderer.open(FormatOption.parse(format),
+                bookConverter.summaryLayout())) {
+            PagedRows.forEach(after, limit, bookService::findSummaryPage, BookSummary::id, rows::write);
+        }
+    }
+
+    // bba 1 --after 100 --limit 50
+    @ShellMethod(value = "Find books of author page by page", key = "bba")
+    public void findBooksByAuthor(long authorId,
+                                  @ShellOption(defaultValue = "0") long after,
+                                  @ShellOption(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+                                  @ShellOption(defaultValue = FormatOption.DEFAULT, help = FormatOption.HELP)
+                                  String format) {
+        try (RowWriter<Book> rows = terminalRenderer.open(FormatOption.parse(format), bookConverter.bookLayout())) {
+            PagedRows.forEach(after, limit, (afterId, pageSize) ->
+                    bookService.findByAuthor(authorId, afterId, pageSize), Book::getId, rows::write);
+        }
+    }
+
+    // bbg 1,6 --match all --after 100 --limit 50
+    @ShellMethod(value = "Find books having any or all of genres page by page", key = "bbg")
+    public void findBooksByGenres(Set<Long> genresIds,
+                                  @ShellOption(defaultValue = "any", help = "any or all") String match,
+                                  @ShellOption(defaultValue = "0") long after,
+                                  @ShellOption(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+                                  @ShellOption(defaultValue = FormatOption.DEFAULT, help = FormatOption.HELP)
+                                  String format) {
+        var genreMatch = GenreMatch.valueOf(match.toUpperCase(Locale.ROOT));
+        try (RowWriter<Book> rows = terminalRenderer.open(FormatOption.parse(format), bookConverter.bookLayout())) {
+            PagedRows.forEach(after, limit, (afterId, pageSize) ->
+                    bookService.findByGenres(genresIds, genreMatch, afterId, pageSize), Book::getId, rows::write);
+        }
+    }
+
+    @ShellMethod(value = "Count books per author and per genre", key = "bf")
+    public String findBookFacets() {
+        var facets = bookService.findFacets();
+        return "Authors:" + System.lineSeparator() + facetConverter.facetsToString(facets.authors()) +
+                System.lineSeparator() + "Genres:" + System.lineSeparator() +
+                facetConverter.facetsToString(facets.genres());
+    }
+
+    // bcount --author 1 --genres 1,6 --match all
+    @ShellMethod(value = "Count books of author and genres in catalog snapshot", key = "bcount")
+    public String countBooks(@ShellOption(defaultValue = ShellOption.NULL) Long author,
+                             @ShellOption(defaultValue = ShellOption.NULL) Set<Long> genres,
+                             @ShellOption(defaultValue = "any", help = "any or all") String match) {
+        var genreMatch = GenreMatch.valueOf(match.toUpperCase(Locale.ROOT));
+        var filter = new CatalogFilter(author, genres == null ? Set.of() : genres, genreMatch);
+        return "Books: %d".formatted(bookService.countBooks(filter));
     }
 
     @ShellMethod(value = "Find book by id", key = "bbid")
@@ -32,6 +126,15 @@ public class BookCommands {
                 .orElse("Book with id %d not found".formatted(id));
     }
 
+    // bs "tolstoy war" --limit 20 --format table
+    @ShellMethod(value = "Search books by words of title, author and genres", key = "bs")
+    public void searchBooks(String query, @ShellOption(defaultValue = DEFAULT_SEARCH_LIMIT) int limit,
+                            @ShellOption(defaultValue = FormatOption.DEFAULT, help = FormatOption.HELP) String format) {
+        try (RowWriter<Book> rows = terminalRenderer.open(FormatOption.parse(format), bookConverter.bookLayout())) {
+            bookService.search(query, limit).forEach(rows::write);
+        }
+    }
+
     // bins newBook 1 1,6
     @ShellMethod(value = "Insert book", key = "bins")
     public String insertBook(String title, long authorId, Set<Long> genresIds) {
@@ -39,6 +142,27 @@ public class BookCommands {
         return bookConverter.bookToString(savedBook);
     }
 
+    // bimp books.jsonl.gz --chunk-size 10000
+    @ShellMethod(value = "Import books from csv (title;authorId;genreIds) or jsonl file, .gz is unpacked",
+            key = "bimp")
+    public String importBooks(String file,
+                              @ShellOption(value = "--chunk-size", defaultValue = DEFAULT_IMPORT_CHUNK_SIZE)
+                              int chunkSize) {
+        var result = bookImportService.importBooks(Path.of(file), chunkSize);
+        return "Imported %d books in %d ms (%d rows/s)".formatted(
+                result.rows(), result.elapsedMillis(), result.rowsPerSecond());
+    }
+
+    // export books.jsonl.gz --format jsonl --gzip
+    @ShellMethod(value = "Export all books to csv (title;authorId;genreIds) or jsonl file", key = "export")
+    public String exportBooks(String file, @ShellOption(defaultValue = "csv", help = "csv or jsonl") String format,
+                              @ShellOption(defaultValue = "false") boolean gzip) {
+        var result = bookExportService.export(Path.of(file),
+                ExportFormat.valueOf(format.toUpperCase(Locale.ROOT)), gzip);
+        return "Exported %d books (%d KB) in %d ms (%d rows/s)".formatted(
+                result.rows(), result.bytes() / 1024, result.elapsedMillis(), result.rowsPerSecond());
+    }
+
     // bupd 4 editedBook 3 2,5
     @ShellMethod(value = "Update book", key = "bupd")
     public String updateBook(long id, String title, long authorId, Set<Long> genresIds) {
@@ -46,10 +170,10 @@ public class BookCommands {
         return bookConverter.bookToString(savedBook);
     }
 
-    // bdel 4
-    @ShellMethod(value = "Delete book by id", key = "bdel")
-    public void deleteBook(long id) {
-        bookService.deleteById(id);
+    // bdel 4,8,15
+    @ShellMethod(value = "Delete books by ids", key = "bdel")
+    public String deleteBooks(Set<Long> ids) {
+        int deleted = bookService.deleteAllByIds(ids);
+        return "Deleted %d of %d books".formatted(deleted, ids.size());
     }
 }
-
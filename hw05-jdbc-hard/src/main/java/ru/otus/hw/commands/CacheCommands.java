@@ -0,0 +1,38 @@
+package ru.otus.hw.commands;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import ru.otus.hw.cache.EntityCache;
+import ru.otus.hw.repositories.CachingAuthorRepository;
+import ru.otus.hw.repositories.CachingGenreRepository;
+
+// Репозитории берутся через ObjectProvider, а не ленивым прокси, как в остальных командах: классы
+// с @Repository уже проксируются CGLIB, и AOT-сборка не может создать второй прокси того же класса
+@RequiredArgsConstructor
+@ShellComponent
+public class CacheCommands {
+
+    private final ObjectProvider<CachingAuthorRepository> authorRepository;
+
+    private final ObjectProvider<CachingGenreRepository> genreRepository;
+
+    @ShellMethod(value = "Show reference data cache statistics", key = "cache-stats")
+    public String cacheStats() {
+        return cacheToString("authors", authorRepository.getObject().getCache()) + System.lineSeparator()
+                + cacheToString("genres", genreRepository.getObject().getCache());
+    }
+
+    // Нужна после изменения авторов или жанров в обход приложения, например через консоль h2
+    @ShellMethod(value = "Evict all cached authors and genres", key = "cache-evict")
+    public String evictCaches() {
+        authorRepository.getObject().evictAll();
+        genreRepository.getObject().evictAll();
+        return "Reference data caches evicted";
+    }
+
+    private String cacheToString(String name, EntityCache<?> cache) {
+        return "%s: size %d, hits %d, misses %d".formatted(name, cache.size(), cache.getHits(), cache.getMisses());
+    }
+}
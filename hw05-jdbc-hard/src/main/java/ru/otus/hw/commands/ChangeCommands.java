@@ -0,0 +1,35 @@
+package ru.otus.hw.commands;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import ru.otus.hw.converters.BookChangeConverter;
+import ru.otus.hw.services.BookChangeService;
+
+import java.util.stream.Collectors;
+
+@SuppressWarnings({"SpellCheckingInspection", "unused"})
+@RequiredArgsConstructor(onConstructor_ = @Lazy)
+@ShellComponent
+public class ChangeCommands {
+    private static final String DEFAULT_CHANGES_LIMIT = "100";
+
+    private final BookChangeService bookChangeService;
+
+    private final BookChangeConverter bookChangeConverter;
+
+    // Следующий запрос продолжает с seq последней выведенной записи: changes --since 120 --limit 50
+    @ShellMethod(value = "Show book changes with sequence number greater than since", key = "changes")
+    public String findChanges(@ShellOption(defaultValue = "0") long since,
+                              @ShellOption(defaultValue = DEFAULT_CHANGES_LIMIT) int limit) {
+        var changes = bookChangeService.findSince(since, limit);
+        if (changes.isEmpty()) {
+            return "No changes after %d".formatted(since);
+        }
+        return changes.stream()
+                .map(bookChangeConverter::changeToString)
+                .collect(Collectors.joining("," + System.lineSeparator()));
+    }
+}
@@ -0,0 +1,21 @@
+package ru.otus.hw.commands;
+
+import ru.otus.hw.rendering.OutputFormat;
+
+import java.util.Locale;
+
+/**
+ * Общая опция --format списочных команд.
+ */
+final class FormatOption {
+    static final String DEFAULT = "plain";
+
+    static final String HELP = "plain, table or json";
+
+    private FormatOption() {
+    }
+
+    static OutputFormat parse(String format) {
+        return OutputFormat.valueOf(format.toUpperCase(Locale.ROOT));
+    }
+}
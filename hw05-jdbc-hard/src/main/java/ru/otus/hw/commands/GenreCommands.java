@@ -1,14 +1,20 @@
 package ru.otus.hw.commands;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
 import ru.otus.hw.converters.GenreConverter;
+import ru.otus.hw.converters.FacetConverter;
+import ru.otus.hw.dto.FacetCount;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.rendering.RowWriter;
+import ru.otus.hw.rendering.TerminalRenderer;
 import ru.otus.hw.services.GenreService;
+import ru.otus.hw.services.BookService;
 
-import java.util.stream.Collectors;
-
-@RequiredArgsConstructor
+@RequiredArgsConstructor(onConstructor_ = @Lazy)
 @ShellComponent
 public class GenreCommands {
 
@@ -16,11 +22,28 @@ public class GenreCommands {
 
     private final GenreConverter genreConverter;
 
+    private final BookService bookService;
+
+    private final FacetConverter facetConverter;
+
+    private final TerminalRenderer terminalRenderer;
+
+    // ag --format json
     @ShellMethod(value = "Find all genres", key = "ag")
-    public String findAllGenres() {
-        return genreService.findAll().stream()
-                .map(genreConverter::genreToString)
-                .collect(Collectors.joining("," + System.lineSeparator()));
+    public void findAllGenres(@ShellOption(defaultValue = FormatOption.DEFAULT, help = FormatOption.HELP)
+                              String format) {
+        try (RowWriter<Genre> rows = terminalRenderer.open(FormatOption.parse(format),
+                genreConverter.genreLayout())) {
+            genreService.findAll().forEach(rows::write);
+        }
     }
-}
 
+    @ShellMethod(value = "Find all genres with books count", key = "gfc")
+    public void findGenreFacets(@ShellOption(defaultValue = FormatOption.DEFAULT, help = FormatOption.HELP)
+                                String format) {
+        try (RowWriter<FacetCount> rows = terminalRenderer.open(FormatOption.parse(format),
+                facetConverter.facetLayout())) {
+            bookService.findFacets().genres().forEach(rows::write);
+        }
+    }
+}
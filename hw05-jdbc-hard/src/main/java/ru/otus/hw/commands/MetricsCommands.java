@@ -0,0 +1,71 @@
+package ru.otus.hw.commands;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor(onConstructor_ = @Lazy)
+@ShellComponent
+public class MetricsCommands {
+
+    private final MeterRegistry registry;
+
+    // metrics --filter repository
+    @ShellMethod(value = "Show timings, row counts and errors of queries and commands", key = "metrics")
+    public String showMetrics(@ShellOption(defaultValue = "") String filter) {
+        return registry.getMeters().stream()
+                .filter(meter -> meter.getId().getName().contains(filter))
+                .sorted(Comparator.comparing((Meter meter) -> meter.getId().getName())
+                        .thenComparing(meter -> meter.getId().getTags().toString()))
+                .map(this::meterToString)
+                .filter(line -> !line.isEmpty())
+                .collect(Collectors.joining(System.lineSeparator()));
+    }
+
+    private String meterToString(Meter meter) {
+        String name = meter.getId().getName() + meter.getId().getTags().stream()
+                .map(Tag::getValue)
+                .collect(Collectors.joining(".", "[", "]"));
+        if (meter instanceof Timer timer) {
+            return "%s count=%d mean=%.3fms max=%.3fms %s".formatted(name, timer.count(),
+                    timer.mean(TimeUnit.MILLISECONDS), timer.max(TimeUnit.MILLISECONDS),
+                    percentilesToString(timer.takeSnapshot(), TimeUnit.MILLISECONDS));
+        }
+        if (meter instanceof DistributionSummary summary) {
+            return "%s count=%d mean=%.1f max=%.0f %s".formatted(name, summary.count(),
+                    summary.mean(), summary.max(), percentilesToString(summary.takeSnapshot(), null));
+        }
+        if (meter instanceof Counter counter) {
+            return "%s count=%.0f".formatted(name, counter.count());
+        }
+        return "";
+    }
+
+    private static String percentilesToString(HistogramSnapshot snapshot, TimeUnit unit) {
+        return Arrays.stream(snapshot.percentileValues())
+                .map(value -> formatPercentile(value, unit))
+                .collect(Collectors.joining(" "));
+    }
+
+    private static String formatPercentile(ValueAtPercentile value, TimeUnit unit) {
+        String percentile = "p" + Math.round(value.percentile() * 100);
+        return unit == null
+                ? "%s=%.0f".formatted(percentile, value.value())
+                : "%s=%.3fms".formatted(percentile, value.value(unit));
+    }
+}
@@ -0,0 +1,40 @@
+package ru.otus.hw.commands;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Читает большой результат команды страницами ограниченного размера по возрастанию id,
+ * чтобы в памяти не держать больше одной страницы, сколько бы строк ни запросили.
+ */
+final class PagedRows {
+    static final int PAGE_SIZE = 500;
+
+    private PagedRows() {
+    }
+
+    static <T> void forEach(long afterId, int limit, PageQuery<T> query, ToLongFunction<T> idOf,
+                            Consumer<T> action) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive");
+        }
+        long after = afterId;
+        int remaining = limit;
+        while (remaining > 0) {
+            int pageSize = Math.min(PAGE_SIZE, remaining);
+            List<T> page = query.find(after, pageSize);
+            page.forEach(action);
+            if (page.size() < pageSize) {
+                return;
+            }
+            after = idOf.applyAsLong(page.get(page.size() - 1));
+            remaining -= pageSize;
+        }
+    }
+
+    @FunctionalInterface
+    interface PageQuery<T> {
+        List<T> find(long afterId, int limit);
+    }
+}
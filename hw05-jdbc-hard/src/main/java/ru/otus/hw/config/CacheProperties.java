@@ -0,0 +1,17 @@
+package ru.otus.hw.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.cache")
+@Getter
+@Setter
+public class CacheProperties {
+
+    private int maxSize = 10_000;
+
+    private Duration ttl = Duration.ofMinutes(10);
+}
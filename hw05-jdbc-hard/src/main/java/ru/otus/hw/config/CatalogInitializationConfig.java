@@ -0,0 +1,21 @@
+package ru.otus.hw.config;
+
+import org.springframework.boot.autoconfigure.sql.init.SqlDataSourceScriptDatabaseInitializer;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+@EnableConfigurationProperties(SqlInitializationProperties.class)
+public class CatalogInitializationConfig {
+
+    // Подменяет инициализатор Spring Boot, тот создается только при отсутствии своего бина
+    @Bean
+    public SqlDataSourceScriptDatabaseInitializer dataSourceScriptDatabaseInitializer(
+            DataSource dataSource, SqlInitializationProperties properties) {
+        return new CatalogSchemaInitializer(dataSource, properties);
+    }
+}
@@ -0,0 +1,60 @@
+package ru.otus.hw.config;
+
+import org.springframework.boot.autoconfigure.sql.init.SqlDataSourceScriptDatabaseInitializer;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Выполняет schema.sql и data.sql только в пустой БД. Файловый каталог (профиль persistent) создается
+ * при первом запуске, а при следующих запусках к нему по порядку применяются миграции из db/migration.
+ * Каждая миграция идемпотентна (if not exists), поэтому выполняется при каждом открытии и доводит
+ * каталог, созданный любой прежней версией приложения, до текущей схемы. Изменение schema.sql
+ * сопровождается новой миграцией в конце списка.
+ */
+public class CatalogSchemaInitializer extends SqlDataSourceScriptDatabaseInitializer {
+    private static final String CATALOG_TABLE = "BOOKS";
+
+    private static final List<String> MIGRATIONS = List.of(
+            "db/migration/001-books-version.sql",
+            "db/migration/002-book-changes.sql",
+            "db/migration/003-deleted-books.sql");
+
+    private final DataSource dataSource;
+
+    public CatalogSchemaInitializer(DataSource dataSource, SqlInitializationProperties properties) {
+        super(dataSource, properties);
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public boolean initializeDatabase() {
+        if (catalogExists()) {
+            migrate();
+            return false;
+        }
+        return super.initializeDatabase();
+    }
+
+    private void migrate() {
+        var populator = new ResourceDatabasePopulator();
+        MIGRATIONS.forEach(location -> populator.addScript(new ClassPathResource(location)));
+        populator.execute(dataSource);
+    }
+
+    private boolean catalogExists() {
+        try (Connection connection = dataSource.getConnection();
+             ResultSet tables = connection.getMetaData().getTables(null, null, CATALOG_TABLE, new String[]{"TABLE"})) {
+            return tables.next();
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Failed to check catalog schema", e);
+        }
+    }
+}
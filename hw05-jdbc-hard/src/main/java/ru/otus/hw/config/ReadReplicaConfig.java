@@ -0,0 +1,63 @@
+package ru.otus.hw.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.sql.init.SqlDataSourceScriptDatabaseInitializer;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.otus.hw.replication.CatalogReplicator;
+
+import javax.sql.DataSource;
+
+/**
+ * Профиль replica: записи идут в основную БД, read-only транзакции сервисов - в реплику,
+ * у каждой свой пул соединений. Реплику вместо настоящей репликации догоняет {@link CatalogReplicator}.
+ */
+@Profile("replica")
+@Configuration
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("app.datasource.primary")
+    public HikariDataSource primaryDataSource() {
+        return new HikariDataSource();
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        return new HikariDataSource();
+    }
+
+    @Primary
+    @Bean
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica));
+    }
+
+    // Основную БД заполняет инициализатор из CatalogInitializationConfig, реплику - те же скрипты
+    @Bean
+    public SqlDataSourceScriptDatabaseInitializer replicaScriptDatabaseInitializer(
+            @Qualifier("replicaDataSource") DataSource replica, SqlInitializationProperties properties) {
+        return new CatalogSchemaInitializer(replica, properties);
+    }
+
+    // Реплика меняется после фиксации транзакции основной БД, когда ее синхронизации еще активны,
+    // поэтому у транзакции реплики свои синхронизации
+    @Bean
+    public CatalogReplicator catalogReplicator(@Qualifier("replicaDataSource") DataSource replica) {
+        var transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(replica));
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return new CatalogReplicator(new NamedParameterJdbcTemplate(replica), transactionTemplate);
+    }
+}
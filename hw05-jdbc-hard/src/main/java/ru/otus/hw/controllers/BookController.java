@@ -0,0 +1,94 @@
+package ru.otus.hw.controllers;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import ru.otus.hw.dto.BookBatchUpdateResult;
+import ru.otus.hw.dto.BookCreateDto;
+import ru.otus.hw.dto.BookSummary;
+import ru.otus.hw.dto.BookUpdateDto;
+import ru.otus.hw.exceptions.EntityNotFoundException;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.services.BookService;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/api/books")
+public class BookController {
+    private static final String DEFAULT_PAGE_LIMIT = "100";
+
+    private static final String DEFAULT_SEARCH_LIMIT = "20";
+
+    // Одним ответом отдается не больше страницы этого размера, весь каталог читается по страницам через after
+    private static final int MAX_LIMIT = 1000;
+
+    private final BookService bookService;
+
+    // GET /api/books?after=100&limit=50
+    @GetMapping
+    public List<Book> findPage(@RequestParam(defaultValue = "0") long after,
+                               @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit) {
+        return bookService.findPage(after, checkLimit(limit));
+    }
+
+    // GET /api/books/summaries?after=100&limit=50
+    @GetMapping("/summaries")
+    public List<BookSummary> findSummaryPage(@RequestParam(defaultValue = "0") long after,
+                                             @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit) {
+        return bookService.findSummaryPage(after, checkLimit(limit));
+    }
+
+    @GetMapping("/{id}")
+    public Book findById(@PathVariable long id) {
+        return bookService.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Book with id %d not found".formatted(id)));
+    }
+
+    // GET /api/books/search?query=war%20peace&limit=20
+    @GetMapping("/search")
+    public List<Book> search(@RequestParam String query,
+                             @RequestParam(defaultValue = DEFAULT_SEARCH_LIMIT) int limit) {
+        return bookService.search(query, checkLimit(limit));
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Book insert(@RequestBody BookCreateDto book) {
+        return bookService.insert(book.title(), book.authorId(), book.genresIds());
+    }
+
+    @PutMapping("/{id}")
+    public Book update(@PathVariable long id, @RequestBody BookCreateDto book) {
+        return bookService.update(id, book.title(), book.authorId(), book.genresIds());
+    }
+
+    // Отказы по отдельным книгам возвращаются в теле ответа, остальные книги пакета сохраняются
+    @PutMapping
+    public BookBatchUpdateResult updateAll(@RequestBody List<BookUpdateDto> books) {
+        return bookService.updateAll(books);
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteById(@PathVariable long id) {
+        bookService.deleteById(id);
+    }
+
+    private static int checkLimit(int limit) {
+        if (limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must not exceed %d".formatted(MAX_LIMIT));
+        }
+        return limit;
+    }
+}
@@ -2,10 +2,29 @@ package ru.otus.hw.converters;
 
 import org.springframework.stereotype.Component;
 import ru.otus.hw.models.Author;
+import ru.otus.hw.rendering.Column;
+import ru.otus.hw.rendering.RowLayout;
+
+import java.util.List;
 
 @Component
 public class AuthorConverter {
+    private final RowLayout<Author> authorLayout = new RowLayout<>(Author.class, List.of(
+            new Column<>("Id", 8, (author, out) -> out.append(author.getId().longValue())),
+            new Column<>("Full name", 0, (author, out) -> out.append(author.getFullName()))),
+            this::appendAuthor);
+
     public String authorToString(Author author) {
-        return "Id: %d, FullName: %s".formatted(author.getId(), author.getFullName());
+        var out = new StringBuilder(48);
+        appendAuthor(author, out);
+        return out.toString();
+    }
+
+    public void appendAuthor(Author author, StringBuilder out) {
+        out.append("Id: ").append(author.getId().longValue()).append(", FullName: ").append(author.getFullName());
+    }
+
+    public RowLayout<Author> authorLayout() {
+        return authorLayout;
     }
 }
@@ -0,0 +1,12 @@
+package ru.otus.hw.converters;
+
+import org.springframework.stereotype.Component;
+import ru.otus.hw.dto.BookChange;
+
+@Component
+public class BookChangeConverter {
+    public String changeToString(BookChange change) {
+        return "Seq: %d, Book: %d, Change: %s, Version: %d, At: %s".formatted(change.seq(), change.bookId(),
+                change.type(), change.bookVersion(), change.changedAt());
+    }
+}
@@ -2,9 +2,13 @@ package ru.otus.hw.converters;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
+import ru.otus.hw.dto.BookSummary;
 import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.rendering.Column;
+import ru.otus.hw.rendering.RowLayout;
 
-import java.util.stream.Collectors;
+import java.util.List;
 
 @RequiredArgsConstructor
 @Component
@@ -13,15 +17,68 @@ public class BookConverter {
 
     private final GenreConverter genreConverter;
 
+    private final RowLayout<Book> bookLayout = new RowLayout<>(Book.class, List.of(
+            new Column<>("Id", 8, (book, out) -> out.append(book.getId().longValue())),
+            new Column<>("Title", 40, (book, out) -> out.append(book.getTitle())),
+            new Column<>("Author", 28, (book, out) -> out.append(book.getAuthor().getFullName())),
+            new Column<>("Genres", 0, BookConverter::appendGenreNames)),
+            this::appendBook);
+
+    private final RowLayout<BookSummary> summaryLayout = new RowLayout<>(BookSummary.class, List.of(
+            new Column<>("Id", 8, (summary, out) -> out.append(summary.id())),
+            new Column<>("Title", 40, (summary, out) -> out.append(summary.title())),
+            new Column<>("Author", 0, (summary, out) -> out.append(summary.authorName()))),
+            this::appendSummary);
+
     public String bookToString(Book book) {
-        var genresString = book.getGenres().stream()
-                .map(genreConverter::genreToString)
-                .map("{%s}"::formatted)
-                .collect(Collectors.joining(", "));
-        return "Id: %d, title: %s, author: {%s}, genres: [%s]".formatted(
-                book.getId(),
-                book.getTitle(),
-                authorConverter.authorToString(book.getAuthor()),
-                genresString);
+        var out = new StringBuilder(160);
+        appendBook(book, out);
+        return out.toString();
+    }
+
+    public void appendBook(Book book, StringBuilder out) {
+        out.append("Id: ").append(book.getId().longValue()).append(", title: ").append(book.getTitle())
+                .append(", author: {");
+        authorConverter.appendAuthor(book.getAuthor(), out);
+        out.append("}, genres: [");
+        List<Genre> genres = book.getGenres();
+        for (int i = 0; i < genres.size(); i++) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            out.append('{');
+            genreConverter.appendGenre(genres.get(i), out);
+            out.append('}');
+        }
+        out.append(']');
+    }
+
+    public String summaryToString(BookSummary summary) {
+        var out = new StringBuilder(96);
+        appendSummary(summary, out);
+        return out.toString();
+    }
+
+    public void appendSummary(BookSummary summary, StringBuilder out) {
+        out.append("Id: ").append(summary.id()).append(", title: ").append(summary.title())
+                .append(", author: ").append(summary.authorName());
+    }
+
+    public RowLayout<Book> bookLayout() {
+        return bookLayout;
+    }
+
+    public RowLayout<BookSummary> summaryLayout() {
+        return summaryLayout;
+    }
+
+    private static void appendGenreNames(Book book, StringBuilder out) {
+        List<Genre> genres = book.getGenres();
+        for (int i = 0; i < genres.size(); i++) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            out.append(genres.get(i).getName());
+        }
     }
 }
@@ -0,0 +1,43 @@
+package ru.otus.hw.converters;
+
+import org.springframework.stereotype.Component;
+import ru.otus.hw.dto.FacetCount;
+import ru.otus.hw.rendering.Column;
+import ru.otus.hw.rendering.RowLayout;
+
+import java.util.List;
+
+@Component
+public class FacetConverter {
+    private final RowLayout<FacetCount> facetLayout = new RowLayout<>(FacetCount.class, List.of(
+            new Column<>("Id", 8, (facet, out) -> out.append(facet.id())),
+            new Column<>("Name", 32, (facet, out) -> out.append(facet.name())),
+            new Column<>("Books", 0, (facet, out) -> out.append(facet.booksCount()))),
+            this::appendFacet);
+
+    public String facetToString(FacetCount facet) {
+        var out = new StringBuilder(48);
+        appendFacet(facet, out);
+        return out.toString();
+    }
+
+    public String facetsToString(List<FacetCount> facets) {
+        var out = new StringBuilder(facets.size() * 48);
+        for (int i = 0; i < facets.size(); i++) {
+            if (i > 0) {
+                out.append(',').append(System.lineSeparator());
+            }
+            appendFacet(facets.get(i), out);
+        }
+        return out.toString();
+    }
+
+    public void appendFacet(FacetCount facet, StringBuilder out) {
+        out.append("Id: ").append(facet.id()).append(", Name: ").append(facet.name())
+                .append(", Books: ").append(facet.booksCount());
+    }
+
+    public RowLayout<FacetCount> facetLayout() {
+        return facetLayout;
+    }
+}
@@ -2,10 +2,29 @@ package ru.otus.hw.converters;
 
 import org.springframework.stereotype.Component;
 import ru.otus.hw.models.Genre;
+import ru.otus.hw.rendering.Column;
+import ru.otus.hw.rendering.RowLayout;
+
+import java.util.List;
 
 @Component
 public class GenreConverter {
+    private final RowLayout<Genre> genreLayout = new RowLayout<>(Genre.class, List.of(
+            new Column<>("Id", 8, (genre, out) -> out.append(genre.getId().longValue())),
+            new Column<>("Name", 0, (genre, out) -> out.append(genre.getName()))),
+            this::appendGenre);
+
     public String genreToString(Genre genre) {
-        return "Id: %d, Name: %s".formatted(genre.getId(), genre.getName());
+        var out = new StringBuilder(32);
+        appendGenre(genre, out);
+        return out.toString();
+    }
+
+    public void appendGenre(Genre genre, StringBuilder out) {
+        out.append("Id: ").append(genre.getId().longValue()).append(", Name: ").append(genre.getName());
+    }
+
+    public RowLayout<Genre> genreLayout() {
+        return genreLayout;
     }
 }
@@ -0,0 +1,8 @@
+package ru.otus.hw.dto;
+
+import ru.otus.hw.models.Book;
+
+import java.util.List;
+
+public record BookBatchUpdateResult(List<Book> updated, List<BookUpdateFailure> failures) {
+}
@@ -0,0 +1,9 @@
+package ru.otus.hw.dto;
+
+import java.time.Instant;
+
+/**
+ * Запись журнала изменений книг. {@code bookVersion} - версия книги после сохранения или на момент удаления.
+ */
+public record BookChange(long seq, long bookId, BookChangeType type, long bookVersion, Instant changedAt) {
+}
@@ -0,0 +1,6 @@
+package ru.otus.hw.dto;
+
+import java.util.Set;
+
+public record BookCreateDto(String title, long authorId, Set<Long> genresIds) {
+}
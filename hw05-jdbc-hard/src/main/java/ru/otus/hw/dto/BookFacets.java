@@ -0,0 +1,6 @@
+package ru.otus.hw.dto;
+
+import java.util.List;
+
+public record BookFacets(List<FacetCount> authors, List<FacetCount> genres) {
+}
@@ -0,0 +1,8 @@
+package ru.otus.hw.dto;
+
+public enum ExportFormat {
+    // title;authorId;genreIds - тот же формат, что читает импорт
+    CSV,
+    // Одна книга целиком в JSON на строку
+    JSONL
+}
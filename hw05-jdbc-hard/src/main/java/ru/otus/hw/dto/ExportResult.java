@@ -0,0 +1,8 @@
+package ru.otus.hw.dto;
+
+public record ExportResult(long rows, long bytes, long elapsedMillis) {
+
+    public long rowsPerSecond() {
+        return elapsedMillis == 0 ? rows * 1000 : rows * 1000 / elapsedMillis;
+    }
+}
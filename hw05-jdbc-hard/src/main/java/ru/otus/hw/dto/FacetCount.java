@@ -0,0 +1,4 @@
+package ru.otus.hw.dto;
+
+public record FacetCount(long id, String name, long booksCount) {
+}
@@ -0,0 +1,9 @@
+package ru.otus.hw.dto;
+
+/**
+ * Как книга должна соответствовать набору жанров: хотя бы одному или всем сразу.
+ */
+public enum GenreMatch {
+    ANY,
+    ALL
+}
@@ -0,0 +1,6 @@
+package ru.otus.hw.events;
+
+import java.util.Collection;
+
+public record BooksDeletedEvent(Collection<Long> ids) {
+}
@@ -0,0 +1,8 @@
+package ru.otus.hw.events;
+
+import ru.otus.hw.models.Book;
+
+import java.util.List;
+
+public record BooksSavedEvent(List<Book> books) {
+}
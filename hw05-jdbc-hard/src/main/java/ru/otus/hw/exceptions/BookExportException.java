@@ -0,0 +1,11 @@
+package ru.otus.hw.exceptions;
+
+public class BookExportException extends RuntimeException {
+    public BookExportException(String message) {
+        super(message);
+    }
+
+    public BookExportException(String message, Throwable ex) {
+        super(message, ex);
+    }
+}
@@ -0,0 +1,11 @@
+package ru.otus.hw.exceptions;
+
+public class ChangeRelayException extends RuntimeException {
+    public ChangeRelayException(String message) {
+        super(message);
+    }
+
+    public ChangeRelayException(String message, Throwable ex) {
+        super(message, ex);
+    }
+}
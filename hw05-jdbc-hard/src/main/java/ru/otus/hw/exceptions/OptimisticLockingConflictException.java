@@ -0,0 +1,7 @@
+package ru.otus.hw.exceptions;
+
+public class OptimisticLockingConflictException extends RuntimeException {
+    public OptimisticLockingConflictException(String message) {
+        super(message);
+    }
+}
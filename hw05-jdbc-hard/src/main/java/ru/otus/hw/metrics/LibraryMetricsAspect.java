@@ -0,0 +1,96 @@
+package ru.otus.hw.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеряет время каждого запроса Jdbc-репозиториев и каждой команды shell,
+ * число возвращенных строк и число ошибок.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class LibraryMetricsAspect {
+    public static final String REPOSITORY_METRIC = "library.repository";
+
+    public static final String COMMAND_METRIC = "library.command";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final MeterRegistry registry;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private final Map<String, DistributionSummary> rowSummaries = new ConcurrentHashMap<>();
+
+    @Around("within(ru.otus.hw.repositories.Jdbc*) && execution(public * *(..))")
+    public Object measureRepositoryCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        return measure(REPOSITORY_METRIC, joinPoint);
+    }
+
+    @Around("@annotation(org.springframework.shell.standard.ShellMethod)")
+    public Object measureCommand(ProceedingJoinPoint joinPoint) throws Throwable {
+        return measure(COMMAND_METRIC, joinPoint);
+    }
+
+    private Object measure(String metric, ProceedingJoinPoint joinPoint) throws Throwable {
+        String className = joinPoint.getSignature().getDeclaringType().getSimpleName();
+        String method = joinPoint.getSignature().getName();
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            rowCount(result).ifPresent(rows -> rowSummary(metric, className, method).record(rows));
+            return result;
+        } catch (Throwable ex) {
+            Counter.builder(metric + ".errors")
+                    .tag("class", className)
+                    .tag("method", method)
+                    .tag("exception", ex.getClass().getSimpleName())
+                    .register(registry)
+                    .increment();
+            throw ex;
+        } finally {
+            timer(metric, className, method).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String metric, String className, String method) {
+        return timers.computeIfAbsent(metric + className + "." + method, key -> Timer.builder(metric)
+                .tag("class", className)
+                .tag("method", method)
+                .publishPercentiles(PERCENTILES)
+                .register(registry));
+    }
+
+    private DistributionSummary rowSummary(String metric, String className, String method) {
+        return rowSummaries.computeIfAbsent(metric + className + "." + method, key ->
+                DistributionSummary.builder(metric + ".rows")
+                        .tag("class", className)
+                        .tag("method", method)
+                        .publishPercentiles(PERCENTILES)
+                        .register(registry));
+    }
+
+    private static Optional<Integer> rowCount(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return Optional.of(collection.size());
+        }
+        if (result instanceof Optional<?> optional) {
+            return Optional.of(optional.isPresent() ? 1 : 0);
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,67 @@
+package ru.otus.hw.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеряет время каждого HTTP-запроса с разбивкой по методу, шаблону пути и статусу ответа.
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestTimingFilter extends OncePerRequestFilter {
+    public static final String HTTP_METRIC = "library.http";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private static final String UNKNOWN_URI = "UNKNOWN";
+
+    // Метод приходит от клиента как есть, поэтому нестандартные значения сводятся к одному тегу,
+    // иначе произвольные методы создавали бы неограниченное число таймеров
+    private static final Set<String> KNOWN_METHODS = Set.of("GET", "HEAD", "POST", "PUT", "PATCH", "DELETE",
+            "OPTIONS", "TRACE");
+
+    private static final String OTHER_METHOD = "OTHER";
+
+    private final MeterRegistry registry;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            // Шаблон пути известен только после выбора обработчика, а не по исходному URI с id
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern == null ? UNKNOWN_URI : pattern.toString();
+            String method = KNOWN_METHODS.contains(request.getMethod()) ? request.getMethod() : OTHER_METHOD;
+            timer(method, uri, response.getStatus())
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String method, String uri, int status) {
+        return timers.computeIfAbsent(method + " " + uri + " " + status, key -> Timer.builder(HTTP_METRIC)
+                .tag("method", method)
+                .tag("uri", uri)
+                .tag("status", String.valueOf(status))
+                .publishPercentiles(PERCENTILES)
+                .register(registry));
+    }
+}
@@ -19,4 +19,11 @@ public class Book {
     private Author author;
 
     private List<Genre> genres;
+
+    // Увеличивается при каждом изменении книги, изменение устаревшей версии отклоняется
+    private long version;
+
+    public Book(Long id, String title, Author author, List<Genre> genres) {
+        this(id, title, author, genres, 0);
+    }
 }
@@ -0,0 +1,13 @@
+package ru.otus.hw.outbox;
+
+import ru.otus.hw.dto.BookChange;
+
+import java.util.List;
+
+/**
+ * Приемник записей журнала изменений. Пачка принимается целиком или не принимается вовсе:
+ * при исключении ретранслятор повторит ее позже, поэтому получатели должны пропускать уже виденные seq.
+ */
+public interface ChangeSink {
+    void publish(List<BookChange> changes);
+}
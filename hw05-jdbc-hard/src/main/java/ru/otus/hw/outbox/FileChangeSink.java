@@ -0,0 +1,74 @@
+package ru.otus.hw.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ru.otus.hw.dto.BookChange;
+import ru.otus.hw.exceptions.ChangeRelayException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Дописывает записи журнала в файл по одной JSON-строке на запись. Пачка записывается одним вызовом
+ * и сбрасывается на диск до того, как ретранслятор сдвинет свою позицию. Файл открывается при первой пачке.
+ */
+public class FileChangeSink implements ChangeSink, Closeable {
+    private final Path file;
+
+    private final ObjectMapper objectMapper;
+
+    private FileChannel channel;
+
+    public FileChangeSink(Path file, ObjectMapper objectMapper) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public synchronized void publish(List<BookChange> changes) {
+        try {
+            var buffer = new ByteArrayOutputStream();
+            for (BookChange change : changes) {
+                buffer.write(objectMapper.writeValueAsBytes(change));
+                buffer.write('\n');
+            }
+            var bytes = ByteBuffer.wrap(buffer.toByteArray());
+            FileChannel target = channel();
+            while (bytes.hasRemaining()) {
+                target.write(bytes);
+            }
+            target.force(false);
+        } catch (JsonProcessingException e) {
+            throw new ChangeRelayException("Failed to serialize book changes", e);
+        } catch (IOException e) {
+            throw new ChangeRelayException("Failed to append book changes to %s".formatted(file), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+}
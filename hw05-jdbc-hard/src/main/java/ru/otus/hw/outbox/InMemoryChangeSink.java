@@ -0,0 +1,38 @@
+package ru.otus.hw.outbox;
+
+import ru.otus.hw.dto.BookChange;
+import ru.otus.hw.exceptions.ChangeRelayException;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Ограниченная очередь записей журнала для тестов и получателей внутри процесса.
+ * Если пачка не помещается целиком, она отклоняется, и ретранслятор повторит ее, когда очередь разберут.
+ */
+public class InMemoryChangeSink implements ChangeSink {
+    private final BlockingQueue<BookChange> queue;
+
+    public InMemoryChangeSink(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public synchronized void publish(List<BookChange> changes) {
+        if (queue.remainingCapacity() < changes.size()) {
+            throw new ChangeRelayException("Change queue has room for %d of %d changes"
+                    .formatted(queue.remainingCapacity(), changes.size()));
+        }
+        queue.addAll(changes);
+    }
+
+    public int drainTo(Collection<? super BookChange> target, int maxChanges) {
+        return queue.drainTo(target, maxChanges);
+    }
+
+    public int size() {
+        return queue.size();
+    }
+}
@@ -0,0 +1,30 @@
+package ru.otus.hw.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+@EnableScheduling
+public class OutboxConfig {
+
+    @Bean
+    public ChangeSink changeSink(OutboxProperties properties, ObjectMapper objectMapper) {
+        return switch (properties.getSink()) {
+            case FILE -> new FileChangeSink(properties.getFile(), objectMapper);
+            case MEMORY -> new InMemoryChangeSink(properties.getQueueCapacity());
+        };
+    }
+
+    // Потоки-демоны не держат JVM после выполнения скрипта команд: непереданные записи
+    // остаются в журнале и уйдут при следующем запуске, позиция ретранслятора хранится в БД
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler() {
+        var scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("outbox-");
+        scheduler.setDaemon(true);
+        return scheduler;
+    }
+}
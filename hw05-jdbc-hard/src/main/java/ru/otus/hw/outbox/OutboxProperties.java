@@ -0,0 +1,33 @@
+package ru.otus.hw.outbox;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.outbox")
+@Getter
+@Setter
+public class OutboxProperties {
+
+    private SinkType sink = SinkType.MEMORY;
+
+    private Path file = Path.of("./data/book-changes.jsonl");
+
+    private int queueCapacity = 10_000;
+
+    private int batchSize = 500;
+
+    private Duration pollInterval = Duration.ofSeconds(1);
+
+    // Сколько ждать запись с пропущенным seq после обнаружения пропуска, прежде чем считать его откатом,
+    // а не незавершенной транзакцией
+    private Duration gapTimeout = Duration.ofSeconds(5);
+
+    public enum SinkType {
+        FILE,
+        MEMORY
+    }
+}
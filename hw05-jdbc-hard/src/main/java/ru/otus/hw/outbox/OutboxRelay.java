@@ -0,0 +1,60 @@
+package ru.otus.hw.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.IntervalTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import ru.otus.hw.dto.BookChange;
+import ru.otus.hw.repositories.BookChangeRepository;
+import ru.otus.hw.services.BookChangeService;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Раз в {@code app.outbox.poll-interval} передает новые записи журнала изменений в {@link ChangeSink}
+ * пачками по {@code app.outbox.batch-size}. Позиция сохраняется в БД после того, как приемник принял пачку,
+ * поэтому после сбоя пачка может прийти повторно, но не потеряется.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor_ = @Lazy)
+public class OutboxRelay implements SchedulingConfigurer {
+    static final String RELAY_NAME = "book-changes";
+
+    private final BookChangeService bookChangeService;
+
+    private final BookChangeRepository bookChangeRepository;
+
+    private final ChangeSink changeSink;
+
+    private final OutboxProperties properties;
+
+    // Первый проход через интервал после старта, а не сразу: иначе он поднимал бы БД параллельно с запуском shell
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        Duration interval = properties.getPollInterval();
+        registrar.addFixedDelayTask(new IntervalTask(this::relay, interval, interval));
+    }
+
+    /**
+     * Передает все накопившиеся записи и возвращает их число.
+     */
+    public synchronized int relay() {
+        long position = bookChangeRepository.findRelayPosition(RELAY_NAME);
+        int relayed = 0;
+        List<BookChange> batch;
+        do {
+            batch = bookChangeService.findSince(position, properties.getBatchSize());
+            if (batch.isEmpty()) {
+                break;
+            }
+            changeSink.publish(batch);
+            position = batch.get(batch.size() - 1).seq();
+            bookChangeRepository.saveRelayPosition(RELAY_NAME, position);
+            relayed += batch.size();
+        } while (batch.size() == properties.getBatchSize());
+        return relayed;
+    }
+}
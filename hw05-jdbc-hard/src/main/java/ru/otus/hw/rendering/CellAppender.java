@@ -0,0 +1,9 @@
+package ru.otus.hw.rendering;
+
+/**
+ * Дописывает значение строки результата в общий буфер вместо создания отдельной строки.
+ */
+@FunctionalInterface
+public interface CellAppender<T> {
+    void append(T row, StringBuilder out);
+}
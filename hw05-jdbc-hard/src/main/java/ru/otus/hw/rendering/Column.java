@@ -0,0 +1,8 @@
+package ru.otus.hw.rendering;
+
+/**
+ * Колонка табличного вывода. {@code width == 0} - колонка без ограничения ширины,
+ * имеет смысл только для последней колонки.
+ */
+public record Column<T>(String title, int width, CellAppender<T> appender) {
+}
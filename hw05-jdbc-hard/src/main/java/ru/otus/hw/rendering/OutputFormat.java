@@ -0,0 +1,10 @@
+package ru.otus.hw.rendering;
+
+public enum OutputFormat {
+    // Прежний вывод команд: "Id: 1, title: ...", строки через запятую
+    PLAIN,
+    // Колонки фиксированной ширины с заголовком, длинные значения обрезаются
+    TABLE,
+    // Один JSON-массив на весь результат
+    JSON
+}
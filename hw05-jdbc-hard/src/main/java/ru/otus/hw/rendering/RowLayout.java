@@ -0,0 +1,10 @@
+package ru.otus.hw.rendering;
+
+import java.util.List;
+
+/**
+ * Как выводить строки одного типа во всех форматах: колонки для таблицы,
+ * текстовое представление для plain и тип для сериализации в JSON.
+ */
+public record RowLayout<T>(Class<T> type, List<Column<T>> columns, CellAppender<T> plain) {
+}
@@ -0,0 +1,14 @@
+package ru.otus.hw.rendering;
+
+/**
+ * Пишет строки результата в терминал по одной. Закрытие дописывает окончание формата
+ * (конец JSON-массива, перевод строки) и сбрасывает буфер терминала.
+ */
+public interface RowWriter<T> extends AutoCloseable {
+    void write(T row);
+
+    long rows();
+
+    @Override
+    void close();
+}
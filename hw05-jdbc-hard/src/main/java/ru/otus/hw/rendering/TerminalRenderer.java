@@ -0,0 +1,263 @@
+package ru.otus.hw.rendering;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import org.jline.terminal.Terminal;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Выводит результаты команд прямо в терминал по мере получения строк, без сборки общей строки.
+ * Каждая строка собирается в один переиспользуемый буфер, поэтому память и время до первой
+ * строки не зависят от размера результата.
+ */
+@Component
+@RequiredArgsConstructor
+public class TerminalRenderer {
+    // Первая строка сбрасывается в терминал сразу, дальше - пачками, чтобы не платить за flush на каждой строке
+    static final int FLUSH_EVERY_ROWS = 256;
+
+    private static final int BUFFER_CAPACITY = 512;
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private static final String COLUMN_SEPARATOR = " | ";
+
+    private static final char ELLIPSIS = '…';
+
+    private final Terminal terminal;
+
+    private final ObjectMapper objectMapper;
+
+    public <T> RowWriter<T> open(OutputFormat format, RowLayout<T> layout) {
+        PrintWriter out = terminal.writer();
+        return switch (format) {
+            case PLAIN -> new PlainRowWriter<>(out, layout);
+            case TABLE -> new TableRowWriter<>(out, layout);
+            case JSON -> new JsonRowWriter<>(out, objectMapper, layout);
+        };
+    }
+
+    private abstract static class AbstractRowWriter<T> implements RowWriter<T> {
+        private long rows;
+
+        @Override
+        public final void write(T row) {
+            writeRow(row, rows);
+            rows++;
+            if (rows == 1 || rows % FLUSH_EVERY_ROWS == 0) {
+                flush();
+            }
+        }
+
+        @Override
+        public final long rows() {
+            return rows;
+        }
+
+        protected abstract void writeRow(T row, long index);
+
+        protected abstract void flush();
+    }
+
+    private abstract static class TextRowWriter<T> extends AbstractRowWriter<T> {
+        protected final RowLayout<T> layout;
+
+        protected final StringBuilder buffer = new StringBuilder(BUFFER_CAPACITY);
+
+        private final PrintWriter out;
+
+        private char[] chars = new char[BUFFER_CAPACITY];
+
+        TextRowWriter(PrintWriter out, RowLayout<T> layout) {
+            this.out = out;
+            this.layout = layout;
+        }
+
+        @Override
+        protected final void writeRow(T row, long index) {
+            buffer.setLength(0);
+            appendRow(row, index);
+            writeBuffer();
+        }
+
+        @Override
+        protected final void flush() {
+            out.flush();
+        }
+
+        @Override
+        public final void close() {
+            buffer.setLength(0);
+            appendEnd(rows());
+            writeBuffer();
+            out.flush();
+        }
+
+        protected abstract void appendRow(T row, long index);
+
+        protected abstract void appendEnd(long rows);
+
+        // PrintWriter.append(CharSequence) копирует буфер в новую строку, поэтому пишем через свой массив
+        protected final void writeBuffer() {
+            int length = buffer.length();
+            if (chars.length < length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            buffer.getChars(0, length, chars, 0);
+            out.write(chars, 0, length);
+        }
+    }
+
+    private static final class PlainRowWriter<T> extends TextRowWriter<T> {
+        PlainRowWriter(PrintWriter out, RowLayout<T> layout) {
+            super(out, layout);
+        }
+
+        @Override
+        protected void appendRow(T row, long index) {
+            if (index > 0) {
+                buffer.append(',').append(LINE_SEPARATOR);
+            }
+            layout.plain().append(row, buffer);
+        }
+
+        @Override
+        protected void appendEnd(long rows) {
+            if (rows > 0) {
+                buffer.append(LINE_SEPARATOR);
+            }
+        }
+    }
+
+    private static final class TableRowWriter<T> extends TextRowWriter<T> {
+        TableRowWriter(PrintWriter out, RowLayout<T> layout) {
+            super(out, layout);
+            appendHeader();
+            writeBuffer();
+        }
+
+        @Override
+        protected void appendRow(T row, long index) {
+            List<Column<T>> columns = layout.columns();
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    buffer.append(COLUMN_SEPARATOR);
+                }
+                Column<T> column = columns.get(i);
+                int start = buffer.length();
+                column.appender().append(row, buffer);
+                fit(start, column.width());
+            }
+            buffer.append(LINE_SEPARATOR);
+        }
+
+        @Override
+        protected void appendEnd(long rows) {
+            buffer.append("(").append(rows).append(rows == 1 ? " row)" : " rows)").append(LINE_SEPARATOR);
+        }
+
+        private void appendHeader() {
+            List<Column<T>> columns = layout.columns();
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    buffer.append(COLUMN_SEPARATOR);
+                }
+                int start = buffer.length();
+                buffer.append(columns.get(i).title());
+                fit(start, columns.get(i).width());
+            }
+            buffer.append(LINE_SEPARATOR);
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    buffer.append("-+-");
+                }
+                Column<T> column = columns.get(i);
+                appendRepeated('-', column.width() > 0 ? column.width() : column.title().length());
+            }
+            buffer.append(LINE_SEPARATOR);
+        }
+
+        // Дополняет ячейку пробелами до ширины колонки или обрезает ее с многоточием
+        private void fit(int start, int width) {
+            if (width == 0) {
+                return;
+            }
+            int length = buffer.length() - start;
+            if (length > width) {
+                buffer.setLength(start + width - 1);
+                buffer.append(ELLIPSIS);
+            } else {
+                appendRepeated(' ', width - length);
+            }
+        }
+
+        private void appendRepeated(char c, int count) {
+            for (int i = 0; i < count; i++) {
+                buffer.append(c);
+            }
+        }
+    }
+
+    /**
+     * Один генератор Jackson на весь результат: строки пишутся в JSON-массив без промежуточных строк,
+     * поток терминала генератор не закрывает.
+     */
+    private static final class JsonRowWriter<T> extends AbstractRowWriter<T> {
+        private final PrintWriter out;
+
+        private final ObjectWriter rowWriter;
+
+        private final JsonGenerator generator;
+
+        JsonRowWriter(PrintWriter out, ObjectMapper objectMapper, RowLayout<T> layout) {
+            this.out = out;
+            this.rowWriter = objectMapper.writerFor(layout.type())
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            try {
+                this.generator = objectMapper.getFactory().createGenerator(out);
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        protected void writeRow(T row, long index) {
+            try {
+                rowWriter.writeValue(generator, row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        protected void flush() {
+            try {
+                generator.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                generator.writeEndArray();
+                generator.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            out.println();
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ru.otus.hw.replication;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.otus.hw.events.BooksDeletedEvent;
+import ru.otus.hw.events.BooksSavedEvent;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Заменитель репликации для локального запуска: после фиксации транзакции в основной БД повторяет
+ * на реплике изменения книг из событий сервиса. Авторы и жанры приложение не меняет, реплика получает
+ * их из тех же скриптов инициализации. Изменения применяются в потоке, зафиксировавшем транзакцию,
+ * поэтому отставания реплики, как у настоящей асинхронной репликации, здесь нет.
+ * События двух транзакций об одной книге могут прийти в обратном порядке, поэтому строка книги и ее жанры
+ * меняются, только если версия из события больше версии на реплике. Удаление версии не несет, поэтому
+ * id удаленной книги остается в deleted_books, и сохранения этой книги, пришедшие позже удаления, пропускаются.
+ */
+@RequiredArgsConstructor
+public class CatalogReplicator {
+    private static final int CHUNK_SIZE = 1000;
+
+    static final String MERGE_BOOK_SQL = "merge into books replica " +
+            "using (select * from (values (cast(? as bigint), cast(? as varchar(255)), cast(? as bigint), " +
+            "cast(? as bigint))) source (id, title, author_id, version) " +
+            "where not exists (select 1 from deleted_books where deleted_books.id = source.id)) incoming " +
+            "on replica.id = incoming.id " +
+            "when matched and replica.version < incoming.version then update set " +
+            "title = incoming.title, author_id = incoming.author_id, version = incoming.version " +
+            "when not matched then insert (id, title, author_id, version) " +
+            "values (incoming.id, incoming.title, incoming.author_id, incoming.version)";
+
+    private static final int NOT_APPLIED_COUNT = 0;
+
+    static final String DELETE_GENRES_RELATIONS_SQL = "delete from books_genres where book_id in (:ids)";
+
+    static final String INSERT_GENRE_RELATION_SQL = "insert into books_genres (book_id, genre_id) values (?, ?)";
+
+    static final String DELETE_BOOKS_SQL = "delete from books where id in (:ids)";
+
+    static final String INSERT_DELETED_BOOK_SQL = "merge into deleted_books (id) key (id) values (?)";
+
+    private final NamedParameterJdbcOperations replicaJdbc;
+
+    private final TransactionTemplate replicaTransactionTemplate;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksSaved(BooksSavedEvent event) {
+        replicaTransactionTemplate.executeWithoutResult(status -> {
+            for (int from = 0; from < event.books().size(); from += CHUNK_SIZE) {
+                applySaved(event.books().subList(from, Math.min(from + CHUNK_SIZE, event.books().size())));
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksDeleted(BooksDeletedEvent event) {
+        List<Long> ids = List.copyOf(event.ids());
+        replicaTransactionTemplate.executeWithoutResult(status -> {
+            for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+                replicaJdbc.update(DELETE_BOOKS_SQL, Collections.singletonMap("ids", chunk));
+                replicaJdbc.getJdbcOperations().batchUpdate(INSERT_DELETED_BOOK_SQL,
+                        chunk.stream().map(id -> new Object[]{id}).toList());
+            }
+        });
+    }
+
+    // Жанры переписываются только у книг, строку которых приняла реплика: устаревшее событие пропускается целиком
+    private void applySaved(List<Book> books) {
+        List<Object[]> bookRows = new ArrayList<>(books.size());
+        for (Book book : books) {
+            bookRows.add(new Object[]{book.getId(), book.getTitle(), book.getAuthor().getId(), book.getVersion()});
+        }
+        int[] counts = replicaJdbc.getJdbcOperations().batchUpdate(MERGE_BOOK_SQL, bookRows);
+
+        List<Long> appliedIds = new ArrayList<>(books.size());
+        List<Object[]> relationRows = new ArrayList<>();
+        for (int i = 0; i < books.size(); i++) {
+            if (counts[i] == NOT_APPLIED_COUNT) {
+                continue;
+            }
+            var book = books.get(i);
+            appliedIds.add(book.getId());
+            for (Genre genre : book.getGenres()) {
+                relationRows.add(new Object[]{book.getId(), genre.getId()});
+            }
+        }
+        if (appliedIds.isEmpty()) {
+            return;
+        }
+        replicaJdbc.update(DELETE_GENRES_RELATIONS_SQL, Collections.singletonMap("ids", appliedIds));
+        replicaJdbc.getJdbcOperations().batchUpdate(INSERT_GENRE_RELATION_SQL, relationRows);
+    }
+}
@@ -0,0 +1,13 @@
+package ru.otus.hw.repositories;
+
+import ru.otus.hw.dto.BookChange;
+
+import java.util.List;
+
+public interface BookChangeRepository {
+    List<BookChange> findSince(long afterSeq, int limit);
+
+    long findRelayPosition(String relay);
+
+    void saveRelayPosition(String relay, long lastSeq);
+}
@@ -1,16 +1,46 @@
 package ru.otus.hw.repositories;
 
+import ru.otus.hw.dto.BookFacets;
+import ru.otus.hw.dto.BookSummary;
+import ru.otus.hw.dto.GenreMatch;
 import ru.otus.hw.models.Book;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface BookRepository {
     Optional<Book> findById(long id);
 
     List<Book> findAll();
 
+    List<Book> findPage(long afterId, int limit);
+
+    List<Book> findPageWithLazyGenres(long afterId, int limit);
+
+    List<BookSummary> findSummaryPage(long afterId, int limit);
+
+    List<Book> findAllByIds(Collection<Long> ids);
+
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    List<Book> findByAuthor(long authorId, long afterId, int limit);
+
+    List<Book> findByGenres(Set<Long> genreIds, GenreMatch match, long afterId, int limit);
+
+    BookFacets findFacets();
+
+    void forEach(Consumer<Book> action);
+
     Book save(Book book);
 
+    List<Book> insertAll(List<Book> books);
+
+    List<Book> updateAll(List<Book> books);
+
     void deleteById(long id);
+
+    int deleteAllByIds(Collection<Long> ids);
 }
@@ -0,0 +1,69 @@
+package ru.otus.hw.repositories;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.otus.hw.cache.EntityCache;
+import ru.otus.hw.config.CacheProperties;
+import ru.otus.hw.models.Author;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+@Primary
+@Repository
+public class CachingAuthorRepository implements AuthorRepository {
+    private final AuthorRepository delegate;
+
+    private final EntityCache<Author> cache;
+
+    public CachingAuthorRepository(JdbcAuthorRepository delegate, CacheProperties properties) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>(properties.getMaxSize(), properties.getTtl(), Clock.systemUTC());
+    }
+
+    @Override
+    public List<Author> findAll() {
+        return cache.getAll(delegate::findAll);
+    }
+
+    @Override
+    public Optional<Author> findById(long id) {
+        var cached = cache.get(id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        var author = delegate.findById(id);
+        author.ifPresent(value -> cache.put(id, value));
+        return author;
+    }
+
+    @Override
+    public List<Author> findAllByIds(Set<Long> ids) {
+        List<Author> authors = new ArrayList<>(ids.size());
+        Set<Long> missingIds = new HashSet<>();
+        for (long id : ids) {
+            cache.get(id).ifPresentOrElse(authors::add, () -> missingIds.add(id));
+        }
+        if (!missingIds.isEmpty()) {
+            for (Author author : delegate.findAllByIds(missingIds)) {
+                cache.put(author.getId(), author);
+                authors.add(author);
+            }
+        }
+        authors.sort(Comparator.comparing(Author::getId));
+        return authors;
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    public EntityCache<Author> getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,57 @@
+package ru.otus.hw.repositories;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.otus.hw.cache.EntityCache;
+import ru.otus.hw.config.CacheProperties;
+import ru.otus.hw.models.Genre;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Primary
+@Repository
+public class CachingGenreRepository implements GenreRepository {
+    private final GenreRepository delegate;
+
+    private final EntityCache<Genre> cache;
+
+    public CachingGenreRepository(JdbcGenreRepository delegate, CacheProperties properties) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>(properties.getMaxSize(), properties.getTtl(), Clock.systemUTC());
+    }
+
+    @Override
+    public List<Genre> findAll() {
+        return cache.getAll(delegate::findAll);
+    }
+
+    @Override
+    public List<Genre> findAllByIds(Set<Long> ids) {
+        List<Genre> genres = new ArrayList<>(ids.size());
+        Set<Long> missingIds = new HashSet<>();
+        for (long id : ids) {
+            cache.get(id).ifPresentOrElse(genres::add, () -> missingIds.add(id));
+        }
+        if (!missingIds.isEmpty()) {
+            for (Genre genre : delegate.findAllByIds(missingIds)) {
+                cache.put(genre.getId(), genre);
+                genres.add(genre);
+            }
+        }
+        genres.sort(Comparator.comparing(Genre::getId));
+        return genres;
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    public EntityCache<Genre> getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,7 @@
+package ru.otus.hw.repositories;
+
+import ru.otus.hw.snapshot.CatalogSnapshot;
+
+public interface CatalogSnapshotRepository {
+    CatalogSnapshot load();
+}
@@ -11,6 +11,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 
 @Repository
@@ -18,31 +19,45 @@ import java.util.Optional;
 public class JdbcAuthorRepository implements AuthorRepository {
     private static final int LIST_SIZE = 1;
 
+    static final String FIND_ALL_SQL = "select id, full_name from authors";
+
+    static final String FIND_BY_ID_SQL = "select id, full_name from authors where id = :id";
+
+    static final String FIND_ALL_BY_IDS_SQL = "select id, full_name from authors where id in (:ids)";
+
     private final NamedParameterJdbcOperations namedParameterJdbcOperations;
 
     @Override
     public List<Author> findAll() {
-        return namedParameterJdbcOperations.query("select * from authors", new JdbcAuthorRepository.AuthorRowMapper());
+        return namedParameterJdbcOperations.query(FIND_ALL_SQL, new JdbcAuthorRepository.AuthorRowMapper());
 
     }
 
     @Override
     public Optional<Author> findById(long id) {
         List<Author> authors = namedParameterJdbcOperations.query(
-                "select authors.id as id, authors.full_name as full_name from authors where authors.id = :id",
+                FIND_BY_ID_SQL,
                 new MapSqlParameterSource().addValue("id", id), new AuthorRowMapper()
         );
 
         return authors.size() == LIST_SIZE ? Optional.of(authors.get(0)) : Optional.empty();
     }
 
+    @Override
+    public List<Author> findAllByIds(Set<Long> ids) {
+        return namedParameterJdbcOperations.query(
+                FIND_ALL_BY_IDS_SQL,
+                new MapSqlParameterSource().addValue("ids", ids), new AuthorRowMapper()
+        );
+    }
+
     private static class AuthorRowMapper implements RowMapper<Author> {
 
         @Override
         public Author mapRow(ResultSet rs, int i) throws SQLException {
-            String id = rs.getString("id");
+            long id = rs.getLong("id");
             String name = rs.getString("full_name");
-            return new Author(Long.parseLong(id), name);
+            return new Author(id, name);
         }
     }
 }
@@ -0,0 +1,62 @@
+package ru.otus.hw.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.stereotype.Repository;
+import ru.otus.hw.dto.BookChange;
+import ru.otus.hw.dto.BookChangeType;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Чтение журнала изменений книг и позиций его ретрансляторов. Записи в журнал добавляет
+ * {@link JdbcBookRepository} вместе с изменениями книг.
+ */
+@Repository
+@RequiredArgsConstructor
+public class JdbcBookChangeRepository implements BookChangeRepository {
+    static final String FIND_SINCE_SQL = "select seq, book_id, change_type, book_version, changed_at " +
+            "from book_changes where seq > :afterSeq order by seq limit :limit";
+
+    static final String FIND_RELAY_POSITION_SQL = "select last_seq from outbox_positions where relay = :relay";
+
+    static final String SAVE_RELAY_POSITION_SQL =
+            "merge into outbox_positions (relay, last_seq) key (relay) values (:relay, :lastSeq)";
+
+    private final NamedParameterJdbcOperations namedParameterJdbcOperations;
+
+    @Override
+    public List<BookChange> findSince(long afterSeq, int limit) {
+        return namedParameterJdbcOperations.query(FIND_SINCE_SQL,
+                new MapSqlParameterSource().addValue("afterSeq", afterSeq).addValue("limit", limit),
+                new BookChangeRowMapper());
+    }
+
+    @Override
+    public long findRelayPosition(String relay) {
+        List<Long> positions = namedParameterJdbcOperations.queryForList(FIND_RELAY_POSITION_SQL,
+                Collections.singletonMap("relay", relay), Long.class);
+        return positions.isEmpty() ? 0 : positions.get(0);
+    }
+
+    @Override
+    public void saveRelayPosition(String relay, long lastSeq) {
+        namedParameterJdbcOperations.update(SAVE_RELAY_POSITION_SQL,
+                new MapSqlParameterSource().addValue("relay", relay).addValue("lastSeq", lastSeq));
+    }
+
+    private static class BookChangeRowMapper implements RowMapper<BookChange> {
+
+        @Override
+        public BookChange mapRow(ResultSet rs, int i) throws SQLException {
+            return new BookChange(rs.getLong("seq"), rs.getLong("book_id"),
+                    BookChangeType.valueOf(rs.getString("change_type")), rs.getLong("book_version"),
+                    rs.getTimestamp("changed_at").toInstant());
+        }
+    }
+}
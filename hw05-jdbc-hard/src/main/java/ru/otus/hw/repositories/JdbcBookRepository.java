@@ -1,27 +1,41 @@
 package ru.otus.hw.repositories;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.dao.DataAccessException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.ResultSetExtractor;
-import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
-import org.springframework.jdbc.core.namedparam.SqlParameterSourceUtils;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.otus.hw.dto.BookFacets;
+import ru.otus.hw.dto.BookSummary;
+import ru.otus.hw.dto.FacetCount;
+import ru.otus.hw.dto.GenreMatch;
 import ru.otus.hw.exceptions.EntityNotFoundException;
+import ru.otus.hw.exceptions.OptimisticLockingConflictException;
 import ru.otus.hw.models.Author;
 import ru.otus.hw.models.Book;
 import ru.otus.hw.models.Genre;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Repository
@@ -29,33 +43,277 @@ import java.util.stream.Collectors;
 public class JdbcBookRepository implements BookRepository {
     private static final int NOT_UPDATE_COUNT = 0;
 
-    private final GenreRepository genreRepository;
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    private static final int DELETE_CHUNK_SIZE = 1000;
+
+    private static final String SELECT_BOOKS_WITH_GENRES = "select " +
+            "books.id as id, " +
+            "books.title as title, " +
+            "books.version as version, " +
+            "books.author_id as author_id, " +
+            "authors.full_name as full_name, " +
+            "genres.id as genre_id, " +
+            "genres.name as genre_name ";
+
+    private static final String JOIN_AUTHORS_AND_GENRES =
+            "left join authors on books.author_id = authors.id " +
+            "left join books_genres on books.id = books_genres.book_id " +
+            "left join genres on genres.id = books_genres.genre_id ";
+
+    static final String FIND_BY_ID_SQL = SELECT_BOOKS_WITH_GENRES +
+            "from books " + JOIN_AUTHORS_AND_GENRES +
+            "where books.id = :id " +
+            "order by genres.id";
+
+    static final String FIND_ALL_SQL = SELECT_BOOKS_WITH_GENRES +
+            "from books " + JOIN_AUTHORS_AND_GENRES +
+            "order by books.id, genres.id";
+
+    // Порядок только по первичному ключу: H2 идет по индексу без сортировки и при ленивом выполнении
+    // отдает строки сразу, не собирая весь результат. Жанры книги упорядочивает BookRowCallbackHandler
+    static final String STREAM_ALL_SQL = SELECT_BOOKS_WITH_GENRES +
+            "from books " + JOIN_AUTHORS_AND_GENRES +
+            "order by books.id";
+
+    static final String FIND_PAGE_SQL = SELECT_BOOKS_WITH_GENRES +
+            "from (select * from books where id > :afterId order by id limit :limit) books " +
+            JOIN_AUTHORS_AND_GENRES +
+            "order by books.id, genres.id";
+
+    static final String FIND_PAGE_WITHOUT_GENRES_SQL = "select books.id as id, books.title as title, " +
+            "books.version as version, books.author_id as author_id, authors.full_name as full_name " +
+            "from (select * from books where id > :afterId order by id limit :limit) books " +
+            "left join authors on books.author_id = authors.id " +
+            "order by books.id";
+
+    // Только то, что нужно строке списка: без жанров и без лишних колонок книги
+    static final String FIND_SUMMARY_PAGE_SQL = "select books.id as id, books.title as title, " +
+            "authors.full_name as full_name " +
+            "from (select id, title, author_id from books where id > :afterId order by id limit :limit) books " +
+            "left join authors on books.author_id = authors.id " +
+            "order by books.id";
+
+    static final String FIND_ALL_BY_IDS_SQL = SELECT_BOOKS_WITH_GENRES +
+            "from books " + JOIN_AUTHORS_AND_GENRES +
+            "where books.id in (:ids) " +
+            "order by books.id, genres.id";
+
+    static final String FIND_BY_AUTHOR_SQL = SELECT_BOOKS_WITH_GENRES +
+            "from (select * from books where author_id = :authorId and id > :afterId order by id limit :limit) books " +
+            JOIN_AUTHORS_AND_GENRES +
+            "order by books.id, genres.id";
+
+    static final String FIND_BY_ANY_GENRES_SQL = SELECT_BOOKS_WITH_GENRES +
+            "from (select * from books where id in (" +
+            "select book_id from books_genres where genre_id in (:genreIds) and book_id > :afterId) " +
+            "order by id limit :limit) books " +
+            JOIN_AUTHORS_AND_GENRES +
+            "order by books.id, genres.id";
+
+    static final String FIND_BY_ALL_GENRES_SQL = SELECT_BOOKS_WITH_GENRES +
+            "from (select * from books where id in (" +
+            "select book_id from books_genres where genre_id in (:genreIds) and book_id > :afterId " +
+            "group by book_id having count(*) = :genresCount) " +
+            "order by id limit :limit) books " +
+            JOIN_AUTHORS_AND_GENRES +
+            "order by books.id, genres.id";
+
+    // Обе группировки считаются одним запросом, строки различаются по столбцу facet. Книги сначала
+    // группируются по отсортированному индексу внешнего ключа и только потом соединяются с названиями
+    static final String FIND_FACETS_SQL =
+            "select 'A' as facet, authors.id as id, authors.full_name as name, " +
+            "coalesce(counts.books_count, 0) as books_count " +
+            "from authors left join (select author_id, count(*) as books_count from books group by author_id) counts " +
+            "on counts.author_id = authors.id " +
+            "union all " +
+            "select 'G', genres.id, genres.name, coalesce(counts.books_count, 0) " +
+            "from genres left join " +
+            "(select genre_id, count(*) as books_count from books_genres group by genre_id) counts " +
+            "on counts.genre_id = genres.id " +
+            "order by facet, id";
+
+    static final String INSERT_BOOK_SQL =
+            "insert into books (title, author_id) values (:title, :author_id)";
+
+    static final String BATCH_INSERT_BOOK_SQL =
+            "insert into books (title, author_id) values (?, ?)";
+
+    static final String UPDATE_BOOK_SQL = "update books set title = :bookTitle, author_id = :authorId, " +
+            "version = version + 1 where id = :bookId and version = :version";
+
+    static final String BATCH_UPDATE_BOOK_SQL = "update books set title = ?, author_id = ?, " +
+            "version = version + 1 where id = ? and version = ?";
+
+    static final String COUNT_BY_ID_SQL = "select count(*) from books where id = :id";
+
+    // Связи с жанрами удаляет каскад внешнего ключа fk_books_genres_book_id
+    static final String DELETE_BOOK_SQL = "delete from books where id = :id";
+
+    static final String DELETE_ALL_BY_IDS_SQL = "delete from books where id in (:ids)";
+
+    static final String FIND_EXISTING_IDS_SQL = "select id from books where id in (:ids) order by id";
+
+    static final String SELECT_GENRE_IDS_SQL = "select genre_id from books_genres where book_id = :id";
+
+    static final String INSERT_GENRE_RELATION_SQL =
+            "insert into books_genres (book_id, genre_id) values (?, ?)";
+
+    static final String DELETE_REMOVED_GENRES_RELATIONS_SQL =
+            "delete from books_genres where book_id = :id and genre_id in (:genreIds)";
+
+    static final String SELECT_GENRES_RELATIONS_SQL =
+            "select book_id, genre_id from books_genres where book_id in (:ids)";
+
+    static final String DELETE_GENRE_RELATION_SQL =
+            "delete from books_genres where book_id = ? and genre_id = ?";
+
+    // Журнал изменений (outbox) пополняется в той же транзакции, что и сами изменения книг
+    static final String INSERT_SAVED_CHANGE_SQL =
+            "insert into book_changes (book_id, change_type, book_version) values (?, 'SAVED', ?)";
+
+    static final String INSERT_DELETED_CHANGES_SQL =
+            "insert into book_changes (book_id, change_type, book_version) " +
+            "select id, 'DELETED', version from books where id in (:ids) order by id";
 
     private final NamedParameterJdbcOperations namedParameterJdbcOperations;
 
     @Override
     public Optional<Book> findById(long id) {
-        Book book = namedParameterJdbcOperations.query("select " +
-                "books.id as bookId," +
-                "books.author_id as author," +
-                "books.title as title," +
-                "authors.full_name as fullName, " +
-                "genres.id as genreId, " +
-                "genres.name as genreName " +
-                "from books  left join authors on " +
-                "books.author_id = authors.id " +
-                "inner join books_genres on books.id = books_genres.book_id " +
-                "inner join genres on genres.id = books_genres.genre_id " +
-                "where books.id = :id", new MapSqlParameterSource().addValue("id", id), new BookResultSetExtractor());
+        Book book = namedParameterJdbcOperations.query(FIND_BY_ID_SQL,
+                new MapSqlParameterSource().addValue("id", id), new BookResultSetExtractor());
         return Optional.ofNullable(book);
     }
 
     @Override
     public List<Book> findAll() {
-        var genres = genreRepository.findAll();
-        var relations = getAllGenreRelations();
-        var books = getAllBooksWithoutGenres();
-        mergeBooksInfo(books, genres, relations);
+        List<Book> books = new ArrayList<>();
+        var handler = new BookRowCallbackHandler(books::add);
+        namedParameterJdbcOperations.query(FIND_ALL_SQL, handler);
+        handler.finish();
+        return books;
+    }
+
+    @Override
+    public List<Book> findPage(long afterId, int limit) {
+        var params = new MapSqlParameterSource()
+                .addValue("afterId", afterId)
+                .addValue("limit", limit);
+        return queryBooks(FIND_PAGE_SQL, params);
+    }
+
+    /**
+     * Страница книг без соединения с жанрами. Жанры всех книг страницы загружаются одним запросом
+     * при первом обращении к жанрам любой из книг. Читать страницу можно только в транзакции, и обращаться
+     * к жанрам нужно до ее завершения: тогда оба запроса идут через одно соединение к одной БД.
+     * После завершения транзакции еще не загруженные жанры недоступны.
+     */
+    @Override
+    public List<Book> findPageWithLazyGenres(long afterId, int limit) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Page with lazy genres must be read inside a transaction");
+        }
+        var params = new MapSqlParameterSource()
+                .addValue("afterId", afterId)
+                .addValue("limit", limit);
+        List<Book> books = namedParameterJdbcOperations.query(FIND_PAGE_WITHOUT_GENRES_SQL, params,
+                (rs, rowNum) -> new Book(rs.getLong("id"), rs.getString("title"),
+                        new Author(rs.getLong("author_id"), rs.getString("full_name")), null,
+                        rs.getLong("version")));
+        if (books.isEmpty()) {
+            return books;
+        }
+        var loader = new PageGenresLoader(namedParameterJdbcOperations, afterId, books.get(books.size() - 1).getId());
+        TransactionSynchronizationManager.registerSynchronization(loader);
+        books.forEach(book -> book.setGenres(new LazyGenreList(loader, book.getId())));
+        return books;
+    }
+
+    @Override
+    public List<BookSummary> findSummaryPage(long afterId, int limit) {
+        var params = new MapSqlParameterSource()
+                .addValue("afterId", afterId)
+                .addValue("limit", limit);
+        return namedParameterJdbcOperations.query(FIND_SUMMARY_PAGE_SQL, params,
+                (rs, rowNum) -> new BookSummary(rs.getLong("id"), rs.getString("title"), rs.getString("full_name")));
+    }
+
+    @Override
+    public List<Book> findAllByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return queryBooks(FIND_ALL_BY_IDS_SQL, new MapSqlParameterSource("ids", ids));
+    }
+
+    @Override
+    public List<Long> findExistingIds(Collection<Long> ids) {
+        List<Long> sortedIds = ids.stream().distinct().sorted().toList();
+        List<Long> existingIds = new ArrayList<>(sortedIds.size());
+        for (int from = 0; from < sortedIds.size(); from += DELETE_CHUNK_SIZE) {
+            var chunk = sortedIds.subList(from, Math.min(from + DELETE_CHUNK_SIZE, sortedIds.size()));
+            existingIds.addAll(namedParameterJdbcOperations.queryForList(FIND_EXISTING_IDS_SQL,
+                    Collections.singletonMap("ids", chunk), Long.class));
+        }
+        return existingIds;
+    }
+
+    @Override
+    public List<Book> findByAuthor(long authorId, long afterId, int limit) {
+        var params = new MapSqlParameterSource()
+                .addValue("authorId", authorId)
+                .addValue("afterId", afterId)
+                .addValue("limit", limit);
+        return queryBooks(FIND_BY_AUTHOR_SQL, params);
+    }
+
+    @Override
+    public List<Book> findByGenres(Set<Long> genreIds, GenreMatch match, long afterId, int limit) {
+        if (genreIds.isEmpty()) {
+            return List.of();
+        }
+        var params = new MapSqlParameterSource()
+                .addValue("genreIds", genreIds)
+                .addValue("genresCount", genreIds.size())
+                .addValue("afterId", afterId)
+                .addValue("limit", limit);
+        return queryBooks(match == GenreMatch.ALL ? FIND_BY_ALL_GENRES_SQL : FIND_BY_ANY_GENRES_SQL, params);
+    }
+
+    @Override
+    public BookFacets findFacets() {
+        List<FacetCount> authors = new ArrayList<>();
+        List<FacetCount> genres = new ArrayList<>();
+        namedParameterJdbcOperations.query(FIND_FACETS_SQL, (ResultSet rs) -> {
+            var facetCount = new FacetCount(rs.getLong("id"), rs.getString("name"), rs.getLong("books_count"));
+            if ("A".equals(rs.getString("facet"))) {
+                authors.add(facetCount);
+            } else {
+                genres.add(facetCount);
+            }
+        });
+        return new BookFacets(authors, genres);
+    }
+
+    @Override
+    public void forEach(Consumer<Book> action) {
+        var handler = new BookRowCallbackHandler(action);
+        namedParameterJdbcOperations.getJdbcOperations().query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(STREAM_ALL_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, handler);
+        handler.finish();
+    }
+
+    private List<Book> queryBooks(String sql, SqlParameterSource params) {
+        List<Book> books = new ArrayList<>();
+        var handler = new BookRowCallbackHandler(books::add);
+        namedParameterJdbcOperations.query(sql, params, handler);
+        handler.finish();
         return books;
     }
 
@@ -68,44 +326,66 @@ public class JdbcBookRepository implements BookRepository {
     }
 
     @Override
-    public void deleteById(long id) {
-        Map<String, Object> params = Collections.singletonMap("id", id);
-        namedParameterJdbcOperations.update("delete from books_genres where book_id = :id", params);
-        namedParameterJdbcOperations.update(
-                "delete from books where id = :id", params
-        );
+    public List<Book> insertAll(List<Book> books) {
+        for (int from = 0; from < books.size(); from += INSERT_BATCH_SIZE) {
+            var chunk = books.subList(from, Math.min(from + INSERT_BATCH_SIZE, books.size()));
+            batchInsertBooks(chunk);
+            batchInsertGenresRelationsFor(chunk);
+            batchInsertSavedChanges(chunk);
+        }
+        return books;
     }
 
-    private List<Book> getAllBooksWithoutGenres() {
-        return namedParameterJdbcOperations.query("select " +
-                "books.id as id," +
-                " books.author_id as author," +
-                " books.title as title," +
-                " authors.full_name as full_name" +
-                " from books  left join authors on " +
-                "books.author_id = authors.id " +
-                "group by books.id ", new BookRowMapper());
+    /**
+     * Сохраняет изменения существующих книг пакетами JDBC по {@value INSERT_BATCH_SIZE} книг с проверкой версии.
+     * Возвращает только принятые книги с увеличенной версией: книги, которых уже нет или которые успела
+     * изменить другая транзакция, пропускаются без исключения, вызывающий сам решает, что с ними делать.
+     */
+    @Override
+    public List<Book> updateAll(List<Book> books) {
+        List<Book> updatedBooks = new ArrayList<>(books.size());
+        for (int from = 0; from < books.size(); from += INSERT_BATCH_SIZE) {
+            var chunk = books.subList(from, Math.min(from + INSERT_BATCH_SIZE, books.size()));
+            int[] counts = batchUpdateBooks(chunk);
+            List<Book> updatedChunk = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                if (counts[i] != NOT_UPDATE_COUNT) {
+                    var book = chunk.get(i);
+                    book.setVersion(book.getVersion() + 1);
+                    updatedChunk.add(book);
+                }
+            }
+            if (!updatedChunk.isEmpty()) {
+                updateGenresRelationsFor(updatedChunk);
+                batchInsertSavedChanges(updatedChunk);
+                updatedBooks.addAll(updatedChunk);
+            }
+        }
+        return updatedBooks;
     }
 
-    private List<BookGenreRelation> getAllGenreRelations() {
-        return namedParameterJdbcOperations
-                .query(
-                        "select * from books_genres",
-                        new BookGenreRowMapper()
-                );
+    @Override
+    public void deleteById(long id) {
+        namedParameterJdbcOperations.update(INSERT_DELETED_CHANGES_SQL, Collections.singletonMap("ids", List.of(id)));
+        namedParameterJdbcOperations.update(DELETE_BOOK_SQL, Collections.singletonMap("id", id));
     }
 
-    private void mergeBooksInfo(List<Book> booksWithoutGenres, List<Genre> genres,
-                                List<BookGenreRelation> relations) {
-        for (Book book : booksWithoutGenres) {
-            List<Long> genreIds = relations.stream()
-                    .filter(bookGenreRelation -> bookGenreRelation.bookId() == (book.getId()))
-                    .map(rel -> rel.genreId).toList();
-            List<Genre> genreList = genres.stream()
-                    .filter(genre -> genreIds.contains(genre.getId()))
-                    .collect(Collectors.toList());
-            book.setGenres(genreList);
+    /**
+     * Удаляет книги порциями по {@value DELETE_CHUNK_SIZE} id: у всех полных порций один текст запроса,
+     * который H2 берет из кэша разобранных запросов. Id сортируются, чтобы параллельные удаления
+     * блокировали строки в одном порядке.
+     */
+    @Override
+    public int deleteAllByIds(Collection<Long> ids) {
+        List<Long> sortedIds = ids.stream().distinct().sorted().toList();
+        int deleted = 0;
+        for (int from = 0; from < sortedIds.size(); from += DELETE_CHUNK_SIZE) {
+            var chunk = sortedIds.subList(from, Math.min(from + DELETE_CHUNK_SIZE, sortedIds.size()));
+            Map<String, Object> params = Collections.singletonMap("ids", chunk);
+            namedParameterJdbcOperations.update(INSERT_DELETED_CHANGES_SQL, params);
+            deleted += namedParameterJdbcOperations.update(DELETE_ALL_BY_IDS_SQL, params);
         }
+        return deleted;
     }
 
     private Book insert(Book book) {
@@ -115,108 +395,256 @@ public class JdbcBookRepository implements BookRepository {
         params.addValue("title", book.getTitle());
         params.addValue("author_id", book.getAuthor().getId());
 
-        namedParameterJdbcOperations.update(
-                "insert into books (title, author_id) values(:title,:author_id)",
-                params,
-                keyHolder
-        );
+        namedParameterJdbcOperations.update(INSERT_BOOK_SQL, params, keyHolder);
 
         //noinspection DataFlowIssue
         book.setId(keyHolder.getKeyAs(Long.class));
-        batchInsertGenresRelationsFor(book);
+        batchInsertGenresRelationsFor(List.of(book));
+        batchInsertSavedChanges(List.of(book));
         return book;
     }
 
+    private void batchInsertBooks(List<Book> books) {
+        namedParameterJdbcOperations.getJdbcOperations().execute(
+                (Connection connection) -> connection.prepareStatement(BATCH_INSERT_BOOK_SQL, new String[]{"id"}),
+                (PreparedStatement statement) -> {
+                    for (Book book : books) {
+                        statement.setString(1, book.getTitle());
+                        statement.setLong(2, book.getAuthor().getId());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        int i = 0;
+                        while (keys.next()) {
+                            books.get(i++).setId(keys.getLong(1));
+                        }
+                        if (i != books.size()) {
+                            throw new IncorrectResultSizeDataAccessException(
+                                    "Unexpected count of generated book ids", books.size(), i);
+                        }
+                    }
+                    return null;
+                });
+    }
+
     private Book update(Book book) {
         SqlParameterSource mapSqlParameterSource = new MapSqlParameterSource()
                 .addValue("bookId", book.getId())
                 .addValue("bookTitle", book.getTitle())
-                .addValue("authorId", book.getAuthor().getId());
-        int updated = namedParameterJdbcOperations.update(
-                "update books set title=:bookTitle, author_id=:authorId where id=:bookId",
-                mapSqlParameterSource
-        );
+                .addValue("authorId", book.getAuthor().getId())
+                .addValue("version", book.getVersion());
+        int updated = namedParameterJdbcOperations.update(UPDATE_BOOK_SQL, mapSqlParameterSource);
         if (updated == NOT_UPDATE_COUNT) {
-            throw new EntityNotFoundException("Entity not found");
+            throw notUpdatedException(book);
         }
+        book.setVersion(book.getVersion() + 1);
 
-        // Выбросить EntityNotFoundException если не обновлено ни одной записи в БД
-        removeGenresRelationsFor(book);
-        batchInsertGenresRelationsFor(book);
+        updateGenresRelationsFor(book);
+        batchInsertSavedChanges(List.of(book));
 
         return book;
     }
 
-    private void batchInsertGenresRelationsFor(Book book) {
+    // Изменение не прошло: либо книги нет, либо ее версию уже увеличила другая транзакция
+    private RuntimeException notUpdatedException(Book book) {
+        Long count = namedParameterJdbcOperations.queryForObject(COUNT_BY_ID_SQL,
+                Collections.singletonMap("id", book.getId()), Long.class);
+        if (count == null || count == 0) {
+            return new EntityNotFoundException("Book with id %d not found".formatted(book.getId()));
+        }
+        return new OptimisticLockingConflictException("Book with id %d was changed concurrently, version %d is stale"
+                .formatted(book.getId(), book.getVersion()));
+    }
+
+    /**
+     * Меняет только отличающиеся связи книги с жанрами, не трогая совпадающие строки books_genres.
+     */
+    private void updateGenresRelationsFor(Book book) {
+        Map<String, Object> params = Collections.singletonMap("id", book.getId());
+        Set<Long> currentGenreIds = new HashSet<>(namedParameterJdbcOperations.queryForList(
+                SELECT_GENRE_IDS_SQL, params, Long.class));
+        Set<Long> newGenreIds = book.getGenres().stream()
+                .map(Genre::getId)
+                .collect(Collectors.toSet());
 
-        List<BookGenreRelation> bookGenreRelations = book.getGenres()
-                .stream()
-                .map(genre -> new BookGenreRelation(book.getId(), genre.getId()))
+        Set<Long> removedGenreIds = new HashSet<>(currentGenreIds);
+        removedGenreIds.removeAll(newGenreIds);
+        if (!removedGenreIds.isEmpty()) {
+            namedParameterJdbcOperations.update(DELETE_REMOVED_GENRES_RELATIONS_SQL,
+                    new MapSqlParameterSource()
+                            .addValue("id", book.getId())
+                            .addValue("genreIds", removedGenreIds));
+        }
+
+        List<BookGenreRelation> addedRelations = newGenreIds.stream()
+                .filter(genreId -> !currentGenreIds.contains(genreId))
+                .map(genreId -> new BookGenreRelation(book.getId(), genreId))
                 .toList();
+        batchInsertGenresRelations(addedRelations);
+    }
 
-        namedParameterJdbcOperations.batchUpdate(
-                "insert into books_genres (book_id, genre_id) values (:bookId, :genreId)",
-                SqlParameterSourceUtils.createBatch(bookGenreRelations)
+    /**
+     * Пакетный вариант {@link #updateGenresRelationsFor(Book)}: текущие связи всех книг читаются одним запросом,
+     * лишние удаляются и недостающие вставляются двумя пакетами на все книги.
+     */
+    private void updateGenresRelationsFor(List<Book> books) {
+        Map<Long, Set<Long>> currentGenreIds = new HashMap<>();
+        namedParameterJdbcOperations.query(SELECT_GENRES_RELATIONS_SQL,
+                new MapSqlParameterSource("ids", books.stream().map(Book::getId).toList()),
+                (ResultSet rs) -> {
+                    currentGenreIds.computeIfAbsent(rs.getLong("book_id"), key -> new HashSet<>())
+                            .add(rs.getLong("genre_id"));
+                });
+
+        List<BookGenreRelation> removedRelations = new ArrayList<>();
+        List<BookGenreRelation> addedRelations = new ArrayList<>();
+        for (Book book : books) {
+            Set<Long> bookGenreIds = currentGenreIds.getOrDefault(book.getId(), Set.of());
+            Set<Long> newGenreIds = book.getGenres().stream()
+                    .map(Genre::getId)
+                    .collect(Collectors.toSet());
+            bookGenreIds.stream()
+                    .filter(genreId -> !newGenreIds.contains(genreId))
+                    .forEach(genreId -> removedRelations.add(new BookGenreRelation(book.getId(), genreId)));
+            newGenreIds.stream()
+                    .filter(genreId -> !bookGenreIds.contains(genreId))
+                    .forEach(genreId -> addedRelations.add(new BookGenreRelation(book.getId(), genreId)));
+        }
+        batchGenresRelations(DELETE_GENRE_RELATION_SQL, removedRelations);
+        batchGenresRelations(INSERT_GENRE_RELATION_SQL, addedRelations);
+    }
+
+    private int[] batchUpdateBooks(List<Book> books) {
+        return namedParameterJdbcOperations.getJdbcOperations().batchUpdate(BATCH_UPDATE_BOOK_SQL,
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        var book = books.get(i);
+                        ps.setString(1, book.getTitle());
+                        ps.setLong(2, book.getAuthor().getId());
+                        ps.setLong(3, book.getId());
+                        ps.setLong(4, book.getVersion());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return books.size();
+                    }
+                }
         );
     }
 
-    private void removeGenresRelationsFor(Book book) {
-        Map<String, Object> params = Collections.singletonMap("id", book.getId());
-        namedParameterJdbcOperations.update("delete from books_genres where book_id = :id", params);
+    private void batchInsertGenresRelationsFor(List<Book> books) {
+        batchInsertGenresRelations(books.stream()
+                .flatMap(book -> book.getGenres().stream()
+                        .map(genre -> new BookGenreRelation(book.getId(), genre.getId())))
+                .toList());
     }
 
-    private static class BookRowMapper implements RowMapper<Book> {
+    private void batchInsertGenresRelations(List<BookGenreRelation> bookGenreRelations) {
+        batchGenresRelations(INSERT_GENRE_RELATION_SQL, bookGenreRelations);
+    }
 
-        @Override
-        public Book mapRow(ResultSet rs, int rowNum) throws SQLException {
-            long id = Long.parseLong(rs.getString("id"));
-            String title = rs.getString("title");
-            long authorId = Long.parseLong(rs.getString("author"));
-            String fullName = rs.getString("full_name");
-            List<Genre> genres = new ArrayList<>();
-            return new Book(id, title, new Author(authorId, fullName), genres);
+    private void batchGenresRelations(String sql, List<BookGenreRelation> bookGenreRelations) {
+        if (bookGenreRelations.isEmpty()) {
+            return;
         }
+        namedParameterJdbcOperations.getJdbcOperations().batchUpdate(sql,
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        var relation = bookGenreRelations.get(i);
+                        ps.setLong(1, relation.bookId());
+                        ps.setLong(2, relation.genreId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return bookGenreRelations.size();
+                    }
+                }
+        );
     }
 
-    private static class BookGenreRowMapper implements RowMapper<BookGenreRelation> {
+    private void batchInsertSavedChanges(List<Book> books) {
+        namedParameterJdbcOperations.getJdbcOperations().batchUpdate(INSERT_SAVED_CHANGE_SQL,
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        var book = books.get(i);
+                        ps.setLong(1, book.getId());
+                        ps.setLong(2, book.getVersion());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return books.size();
+                    }
+                }
+        );
+    }
+
+    /**
+     * Собирает книги из упорядоченного по books.id результата соединения за один проход.
+     * Строки одной книги идут подряд, поэтому книга передается дальше, как только встречена следующая,
+     * а одинаковые жанры переиспользуются через словарь по id.
+     * После выполнения запроса нужно вызвать {@link #finish()}, чтобы отдать последнюю книгу.
+     */
+    @RequiredArgsConstructor
+    private static class BookRowCallbackHandler implements RowCallbackHandler {
+        private final Consumer<Book> consumer;
+
+        private final Map<Long, Genre> genresById = new HashMap<>();
+
+        private Book current;
 
         @Override
-        public BookGenreRelation mapRow(ResultSet rs, int i) throws SQLException {
-            long bookId = Long.parseLong(rs.getString("book_id"));
-            long genreId = Long.parseLong(rs.getString("genre_id"));
-            return new BookGenreRelation(bookId, genreId);
+        public void processRow(ResultSet rs) throws SQLException {
+            long id = rs.getLong("id");
+            if (current == null || current.getId() != id) {
+                finish();
+                long authorId = rs.getLong("author_id");
+                Author author = new Author(authorId, rs.getString("full_name"));
+                current = new Book(id, rs.getString("title"), author, new ArrayList<>(), rs.getLong("version"));
+            }
+            long genreId = rs.getLong("genre_id");
+            if (!rs.wasNull()) {
+                String genreName = rs.getString("genre_name");
+                current.getGenres().add(genresById.computeIfAbsent(genreId, key -> new Genre(key, genreName)));
+            }
+        }
+
+        void finish() {
+            if (current != null) {
+                current.getGenres().sort(Comparator.comparingLong(Genre::getId));
+                consumer.accept(current);
+                current = null;
+            }
         }
     }
 
-    @SuppressWarnings("ClassCanBeRecord")
-    @RequiredArgsConstructor
+    /**
+     * Собирает одну книгу: книга и автор создаются по первой строке, остальные строки добавляют только жанры.
+     * Если у книги нет жанров, левое соединение вернет одну строку с пустыми полями жанра.
+     */
     private static class BookResultSetExtractor implements ResultSetExtractor<Book> {
 
         @Override
-        public Book extractData(ResultSet rs) throws DataAccessException {
-            try {
-                Book book = null;
-                if (!rs.isBeforeFirst()) {
-                    return book;
-                }
-                List<Genre> genres = new ArrayList<>();
-                while (rs.next()) {
-                    String id = rs.getString("bookId");
-                    String authorId = rs.getString("author");
-                    String title = rs.getString("title");
-                    String fullName = rs.getString("fullName");
-                    book = Book.builder().id(Long.parseLong(id))
-                            .author(new Author(Long.parseLong(authorId), fullName)).title(title).build();
-                    String genreId = rs.getString("genreId");
-                    String genreName = rs.getString("genreName");
-                    genres.add(new Genre(Long.parseLong(genreId), genreName));
-                }
-                assert book != null;
-                book.setGenres(genres);
-                return book;
-            } catch (Exception ex) {
+        public Book extractData(ResultSet rs) throws SQLException {
+            if (!rs.next()) {
                 return null;
             }
+            var author = new Author(rs.getLong("author_id"), rs.getString("full_name"));
+            var book = new Book(rs.getLong("id"), rs.getString("title"), author, new ArrayList<>(),
+                    rs.getLong("version"));
+            do {
+                long genreId = rs.getLong("genre_id");
+                if (!rs.wasNull()) {
+                    book.getGenres().add(new Genre(genreId, rs.getString("genre_name")));
+                }
+            } while (rs.next());
+            return book;
         }
     }
 
@@ -0,0 +1,76 @@
+package ru.otus.hw.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.stereotype.Repository;
+import ru.otus.hw.snapshot.CatalogSnapshot;
+import ru.otus.hw.snapshot.CatalogSnapshotBuilder;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Читает каталог в колоночный снимок узкими запросами без сущностей: строки сразу попадают в массивы построителя.
+ * Для согласованности снимка вызывать в одной транзакции с уровнем изоляции не ниже REPEATABLE_READ.
+ */
+@Repository
+@RequiredArgsConstructor
+public class JdbcCatalogSnapshotRepository implements CatalogSnapshotRepository {
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    static final String SNAPSHOT_AUTHORS_SQL = "select id, full_name from authors order by id";
+
+    static final String SNAPSHOT_GENRES_SQL = "select id, name from genres order by id";
+
+    // Порядок по первичному ключу books позволяет H2 отдавать строки по мере чтения
+    static final String SNAPSHOT_BOOKS_SQL = "select books.id, books.title, books.author_id, books_genres.genre_id " +
+            "from books left join books_genres on books_genres.book_id = books.id " +
+            "order by books.id";
+
+    private final NamedParameterJdbcOperations namedParameterJdbcOperations;
+
+    @Override
+    public CatalogSnapshot load() {
+        var builder = new CatalogSnapshotBuilder();
+        var jdbc = namedParameterJdbcOperations.getJdbcOperations();
+        jdbc.query(SNAPSHOT_AUTHORS_SQL, (ResultSet rs) -> {
+            builder.addAuthor(rs.getLong("id"), rs.getString("full_name"));
+        });
+        jdbc.query(SNAPSHOT_GENRES_SQL, (ResultSet rs) -> {
+            builder.addGenre(rs.getLong("id"), rs.getString("name"));
+        });
+
+        jdbc.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SNAPSHOT_BOOKS_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, new BookColumnsCallbackHandler(builder));
+        return builder.build();
+    }
+
+    // Книга с несколькими жанрами приходит несколькими строками подряд
+    @RequiredArgsConstructor
+    private static class BookColumnsCallbackHandler implements RowCallbackHandler {
+        private final CatalogSnapshotBuilder builder;
+
+        private long lastBookId = Long.MIN_VALUE;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long bookId = rs.getLong(1);
+            if (bookId != lastBookId) {
+                long authorId = rs.getLong(3);
+                Long author = rs.wasNull() ? null : authorId;
+                builder.addBook(bookId, rs.getString(2), author);
+                lastBookId = bookId;
+            }
+            long genreId = rs.getLong(4);
+            if (!rs.wasNull()) {
+                builder.addBookGenre(genreId);
+            }
+        }
+    }
+}
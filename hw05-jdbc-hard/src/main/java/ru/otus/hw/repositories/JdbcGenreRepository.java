@@ -17,12 +17,16 @@ import java.util.Set;
 @AllArgsConstructor
 public class JdbcGenreRepository implements GenreRepository {
 
+    static final String FIND_ALL_SQL = "select id, name from genres";
+
+    static final String FIND_ALL_BY_IDS_SQL = "select id, name from genres where id in (:ids)";
+
     private final NamedParameterJdbcOperations namedParameterJdbcOperations;
 
     @Override
     public List<Genre> findAll() {
         return namedParameterJdbcOperations.query(
-                "select * from genres",
+                FIND_ALL_SQL,
                 new JdbcGenreRepository.GnreRowMapper()
         );
     }
@@ -31,7 +35,7 @@ public class JdbcGenreRepository implements GenreRepository {
     public List<Genre> findAllByIds(Set<Long> ids) {
         Map<String, Object> params = Collections.singletonMap("ids", ids);
         return namedParameterJdbcOperations.query(
-                "select * from genres where id in (:ids)",
+                FIND_ALL_BY_IDS_SQL,
                 params,
                 new JdbcGenreRepository.GnreRowMapper()
         );
@@ -41,7 +45,7 @@ public class JdbcGenreRepository implements GenreRepository {
 
         @Override
         public Genre mapRow(ResultSet rs, int i) throws SQLException {
-            long id = Long.parseLong(rs.getString("id"));
+            long id = rs.getLong("id");
             String name = rs.getString("name");
             return new Genre(id, name);
         }
@@ -0,0 +1,56 @@
+package ru.otus.hw.repositories;
+
+import lombok.RequiredArgsConstructor;
+import ru.otus.hw.models.Genre;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Список жанров книги, который загружается через {@link PageGenresLoader} при первом обращении.
+ * После загрузки ведет себя как обычный изменяемый список.
+ */
+@RequiredArgsConstructor
+class LazyGenreList extends AbstractList<Genre> {
+    private final PageGenresLoader loader;
+
+    private final long bookId;
+
+    private List<Genre> genres;
+
+    @Override
+    public Genre get(int index) {
+        return genres().get(index);
+    }
+
+    @Override
+    public int size() {
+        return genres().size();
+    }
+
+    @Override
+    public Genre set(int index, Genre genre) {
+        return genres().set(index, genre);
+    }
+
+    @Override
+    public void add(int index, Genre genre) {
+        genres().add(index, genre);
+    }
+
+    @Override
+    public Genre remove(int index) {
+        return genres().remove(index);
+    }
+
+    boolean isLoaded() {
+        return genres != null;
+    }
+
+    private List<Genre> genres() {
+        if (genres == null) {
+            genres = loader.takeGenresOf(bookId);
+        }
+        return genres;
+    }
+}
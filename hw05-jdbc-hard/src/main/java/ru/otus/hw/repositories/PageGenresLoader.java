@@ -0,0 +1,70 @@
+package ru.otus.hw.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import ru.otus.hw.models.Genre;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Жанры одной страницы книг. Первое обращение к жанрам любой книги страницы загружает жанры
+ * всех книг одним запросом, после чего каждая книга забирает свой список и загрузчик его не держит.
+ * Страница - это все книги с id из (afterId, lastId], поэтому жанры читаются диапазоном по первичному
+ * ключу books_genres, без списка id в запросе.
+ * Загрузчик живет до конца транзакции, в которой прочитана страница: после нее загрузка отказывает,
+ * чтобы жанры не читались из другой БД или другого состояния каталога, чем сама страница.
+ */
+@RequiredArgsConstructor
+class PageGenresLoader implements TransactionSynchronization {
+    static final String FIND_PAGE_GENRES_SQL = "select books_genres.book_id as book_id, " +
+            "genres.id as genre_id, genres.name as genre_name " +
+            "from books_genres join genres on genres.id = books_genres.genre_id " +
+            "where books_genres.book_id > :afterId and books_genres.book_id <= :lastId " +
+            "order by books_genres.book_id, books_genres.genre_id";
+
+    private final NamedParameterJdbcOperations namedParameterJdbcOperations;
+
+    private final long afterId;
+
+    private final long lastId;
+
+    private Map<Long, List<Genre>> genresByBookId;
+
+    private boolean completed;
+
+    @Override
+    public synchronized void afterCompletion(int status) {
+        completed = true;
+    }
+
+    synchronized List<Genre> takeGenresOf(long bookId) {
+        if (genresByBookId == null) {
+            if (completed) {
+                throw new IllegalStateException("Genres of page must be read inside the transaction that read it");
+            }
+            genresByBookId = loadGenres();
+        }
+        List<Genre> genres = genresByBookId.remove(bookId);
+        return genres == null ? new ArrayList<>() : genres;
+    }
+
+    private Map<Long, List<Genre>> loadGenres() {
+        Map<Long, List<Genre>> genres = new HashMap<>();
+        Map<Long, Genre> genresById = new HashMap<>();
+        var params = new MapSqlParameterSource()
+                .addValue("afterId", afterId)
+                .addValue("lastId", lastId);
+        namedParameterJdbcOperations.query(FIND_PAGE_GENRES_SQL, params, rs -> {
+            long genreId = rs.getLong("genre_id");
+            String genreName = rs.getString("genre_name");
+            genres.computeIfAbsent(rs.getLong("book_id"), key -> new ArrayList<>())
+                    .add(genresById.computeIfAbsent(genreId, key -> new Genre(key, genreName)));
+        });
+        return genres;
+    }
+}
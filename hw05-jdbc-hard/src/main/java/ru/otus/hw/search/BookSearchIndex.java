@@ -0,0 +1,325 @@
+package ru.otus.hw.search;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.otus.hw.events.BooksDeletedEvent;
+import ru.otus.hw.events.BooksSavedEvent;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.repositories.BookRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Инвертированный индекс по словам названия, имени автора и названиям жанров.
+ * Каждое слово запроса ищется по префиксу, книга должна подходить под все слова. Слова короче
+ * {@link #MIN_PREFIX_LENGTH} ищутся целиком: префикс из одного символа охватывает слишком большую часть словаря.
+ * Индекс строится из БД при первом поиске и дальше обновляется событиями о сохранении и удалении книг
+ * после фиксации транзакции. Чтение каталога при построении может не увидеть изменение, зафиксированное
+ * во время чтения, поэтому события, пришедшие во время построения, копятся и применяются сразу после него.
+ * События до начала построения не нужны: их изменения уже зафиксированы и попадут в чтение каталога.
+ * Поэтому каталог читается в отдельной пишущей транзакции, то есть из основной БД и в профиле replica:
+ * реплика может еще не получить изменение, событие о котором пропущено.
+ */
+@Component
+public class BookSearchIndex {
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final BookRepository bookRepository;
+
+    private final TransactionTemplate buildTransaction;
+
+    private final NavigableMap<String, LongPostings> postingsByToken = new TreeMap<>();
+
+    private final Map<Long, String[]> tokensByBookId = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<Runnable> pendingChanges = new ArrayList<>();
+
+    private volatile boolean built;
+
+    // Меняется и читается только под монитором pendingChanges
+    private boolean building;
+
+    public BookSearchIndex(BookRepository bookRepository, PlatformTransactionManager transactionManager) {
+        this.bookRepository = bookRepository;
+        this.buildTransaction = new TransactionTemplate(transactionManager);
+        this.buildTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public long[] search(String query, int limit) {
+        String[] terms = tokenize(query);
+        if (terms.length == 0 || limit <= 0) {
+            return new long[0];
+        }
+        ensureBuilt();
+        lock.readLock().lock();
+        try {
+            return findMatches(terms, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksSaved(BooksSavedEvent event) {
+        if (!built && deferUntilBuilt(() -> event.books().forEach(this::index))) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            event.books().forEach(this::index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksDeleted(BooksDeletedEvent event) {
+        if (!built && deferUntilBuilt(() -> event.ids().forEach(this::unindex))) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            event.ids().forEach(this::unindex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает false, если индекс уже построен и изменение нужно применить сразу. Во время построения
+     * изменение откладывается, а до его начала пропускается. Поток, зафиксировавший транзакцию,
+     * не ждет блокировку индекса, пока идет чтение каталога.
+     */
+    private boolean deferUntilBuilt(Runnable change) {
+        synchronized (pendingChanges) {
+            if (built) {
+                return false;
+            }
+            if (building) {
+                pendingChanges.add(change);
+            }
+            return true;
+        }
+    }
+
+    private void ensureBuilt() {
+        if (built) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!built) {
+                build();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Отложенные изменения применяются, пока очередь не опустеет; последняя проверка и отметка о построении
+    // идут под одним монитором, поэтому следующее событие уже применяется к индексу напрямую
+    private void build() {
+        synchronized (pendingChanges) {
+            building = true;
+        }
+        try {
+            buildTransaction.executeWithoutResult(status -> bookRepository.forEach(this::index));
+            while (true) {
+                List<Runnable> changes;
+                synchronized (pendingChanges) {
+                    if (pendingChanges.isEmpty()) {
+                        built = true;
+                        return;
+                    }
+                    changes = new ArrayList<>(pendingChanges);
+                    pendingChanges.clear();
+                }
+                changes.forEach(Runnable::run);
+            }
+        } finally {
+            synchronized (pendingChanges) {
+                building = false;
+                pendingChanges.clear();
+            }
+        }
+    }
+
+    private long[] findMatches(String[] terms, int limit) {
+        int drivingTerm = 0;
+        long drivingSize = Long.MAX_VALUE;
+        for (int i = 0; i < terms.length; i++) {
+            long size = prefixPostingsSize(terms[i], drivingSize);
+            if (size < drivingSize) {
+                drivingSize = size;
+                drivingTerm = i;
+            }
+        }
+        if (drivingSize == 0) {
+            return new long[0];
+        }
+
+        // Слова с одним подходящим токеном пересекаются по отсортированным спискам,
+        // остальные проверяются по токенам найденной книги
+        List<PostingsCursor> cursors = new ArrayList<>();
+        List<String> verifiedTerms = new ArrayList<>();
+        for (int i = 0; i < terms.length; i++) {
+            if (i == drivingTerm) {
+                continue;
+            }
+            var range = prefixRange(terms[i]);
+            if (range.firstKey().equals(range.lastKey())) {
+                cursors.add(new PostingsCursor(range.firstEntry().getValue()));
+            } else {
+                verifiedTerms.add(terms[i]);
+            }
+        }
+        cursors.sort(Comparator.comparingInt(cursor -> cursor.postings.size()));
+
+        LongPostings candidates = prefixPostings(terms[drivingTerm], (int) drivingSize);
+        long[] result = new long[Math.min(limit, candidates.size())];
+        int found = 0;
+        for (int i = 0; i < candidates.size() && found < result.length; i++) {
+            long id = candidates.get(i);
+            if (allContain(cursors, id) && matchesAll(tokensByBookId.get(id), verifiedTerms)) {
+                result[found++] = id;
+            }
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    private long prefixPostingsSize(String prefix, long stopAfter) {
+        long size = 0;
+        for (LongPostings postings : prefixRange(prefix).values()) {
+            size += postings.size();
+            if (size >= stopAfter) {
+                return size;
+            }
+        }
+        return size;
+    }
+
+    // Частый случай - префикс совпадает с одним словом, его список уже отсортирован и копировать его не нужно
+    private LongPostings prefixPostings(String prefix, int totalSize) {
+        var range = prefixRange(prefix);
+        if (range.firstKey().equals(range.lastKey())) {
+            return range.firstEntry().getValue();
+        }
+        return LongPostings.union(range.values(), totalSize);
+    }
+
+    private NavigableMap<String, LongPostings> prefixRange(String prefix) {
+        if (prefix.length() < MIN_PREFIX_LENGTH) {
+            return postingsByToken.subMap(prefix, true, prefix, true);
+        }
+        return postingsByToken.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private static boolean allContain(List<PostingsCursor> cursors, long id) {
+        for (PostingsCursor cursor : cursors) {
+            if (!cursor.contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesAll(String[] bookTokens, List<String> terms) {
+        for (String term : terms) {
+            if (!containsPrefix(bookTokens, term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsPrefix(String[] tokens, String prefix) {
+        boolean wholeWord = prefix.length() < MIN_PREFIX_LENGTH;
+        for (String token : tokens) {
+            if (wholeWord ? token.equals(prefix) : token.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void index(Book book) {
+        unindex(book.getId());
+        Set<String> tokens = new LinkedHashSet<>(List.of(tokenize(book.getTitle())));
+        if (book.getAuthor() != null) {
+            tokens.addAll(List.of(tokenize(book.getAuthor().getFullName())));
+        }
+        for (Genre genre : book.getGenres()) {
+            tokens.addAll(List.of(tokenize(genre.getName())));
+        }
+        String[] bookTokens = tokens.toArray(String[]::new);
+        tokensByBookId.put(book.getId(), bookTokens);
+        for (String token : bookTokens) {
+            postingsByToken.computeIfAbsent(token, key -> new LongPostings()).add(book.getId());
+        }
+    }
+
+    private void unindex(long bookId) {
+        String[] bookTokens = tokensByBookId.remove(bookId);
+        if (bookTokens == null) {
+            return;
+        }
+        for (String token : bookTokens) {
+            var postings = postingsByToken.get(token);
+            postings.remove(bookId);
+            if (postings.size() == 0) {
+                postingsByToken.remove(token);
+            }
+        }
+    }
+
+    /**
+     * Проход по списку слова вслед за возрастающими id кандидатов.
+     */
+    private static final class PostingsCursor {
+        private final LongPostings postings;
+
+        private int position;
+
+        private PostingsCursor(LongPostings postings) {
+            this.postings = postings;
+        }
+
+        boolean contains(long id) {
+            if (position >= postings.size()) {
+                return false;
+            }
+            position = postings.seek(id, position);
+            return position < postings.size() && postings.get(position) == id;
+        }
+    }
+
+    private static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        return Arrays.stream(TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT)))
+                .filter(token -> !token.isEmpty())
+                .toArray(String[]::new);
+    }
+}
@@ -0,0 +1,95 @@
+package ru.otus.hw.search;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Отсортированный по возрастанию список id книг без повторов.
+ * Новые книги получают самые большие id, поэтому добавление обычно сводится к записи в конец массива.
+ */
+class LongPostings {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+
+    private int size;
+
+    /**
+     * Объединяет несколько списков в один отсортированный без повторов. {@code totalSize} - сумма их размеров.
+     */
+    static LongPostings union(Collection<LongPostings> parts, int totalSize) {
+        long[] ids = new long[Math.max(totalSize, INITIAL_CAPACITY)];
+        int offset = 0;
+        for (LongPostings part : parts) {
+            System.arraycopy(part.ids, 0, ids, offset, part.size);
+            offset += part.size;
+        }
+        Arrays.sort(ids, 0, offset);
+        int unique = 0;
+        for (int i = 0; i < offset; i++) {
+            if (unique == 0 || ids[unique - 1] != ids[i]) {
+                ids[unique++] = ids[i];
+            }
+        }
+        var union = new LongPostings();
+        union.ids = ids;
+        union.size = unique;
+        return union;
+    }
+
+    void add(long id) {
+        if (size > 0 && ids[size - 1] < id) {
+            append(id);
+            return;
+        }
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            return;
+        }
+        int insertAt = -index - 1;
+        ensureCapacity();
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+    }
+
+    void remove(long id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+        }
+    }
+
+    /**
+     * Индекс первого id не меньше заданного, начиная с {@code from}. Ищет экспоненциальным шагом, поэтому проход
+     * по возрастающим id стоит меньше, чем независимые двоичные поиски.
+     */
+    int seek(long id, int from) {
+        int bound = 1;
+        while (from + bound < size && ids[from + bound] < id) {
+            bound <<= 1;
+        }
+        int index = Arrays.binarySearch(ids, from + (bound >> 1), Math.min(from + bound + 1, size), id);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long get(int index) {
+        return ids[index];
+    }
+
+    private void append(long id) {
+        ensureCapacity();
+        ids[size++] = id;
+    }
+
+    private void ensureCapacity() {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package ru.otus.hw.services;
+
+import ru.otus.hw.dto.BookChange;
+
+import java.util.List;
+
+public interface BookChangeService {
+    List<BookChange> findSince(long afterSeq, int limit);
+}
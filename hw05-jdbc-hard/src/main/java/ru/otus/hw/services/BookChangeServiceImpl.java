@@ -0,0 +1,68 @@
+package ru.otus.hw.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.otus.hw.dto.BookChange;
+import ru.otus.hw.outbox.OutboxProperties;
+import ru.otus.hw.repositories.BookChangeRepository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+@RequiredArgsConstructor
+@Service
+public class BookChangeServiceImpl implements BookChangeService {
+    private final BookChangeRepository bookChangeRepository;
+
+    private final OutboxProperties outboxProperties;
+
+    // Когда каждый пропущенный seq впервые обнаружен при чтении журнала. changed_at записи для этого не годится:
+    // это время начала ее транзакции, и долгая транзакция фиксирует запись уже со старым временем
+    private final NavigableMap<Long, Instant> gapsSeenAt = new ConcurrentSkipListMap<>();
+
+    /**
+     * Записи журнала после {@code afterSeq} без пропусков. Seq выдается при вставке, а видна запись после фиксации,
+     * поэтому пропуск может означать еще не зафиксированную транзакцию: выдача останавливается перед ним,
+     * пока с момента, когда пропуск впервые обнаружен, не прошло {@code app.outbox.gap-timeout}.
+     * Более старый пропуск - откат, его не ждут. Время обнаружения хранится в памяти, поэтому после перезапуска
+     * пропуск снова ждут полный срок.
+     * Транзакция не read-only: журнал есть только в основной БД, а read-only транзакции уходят на реплику.
+     */
+    @Transactional
+    @Override
+    public List<BookChange> findSince(long afterSeq, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Changes limit must be positive");
+        }
+        List<BookChange> changes = bookChangeRepository.findSince(afterSeq, limit);
+        Instant now = Instant.now();
+        Instant settledBefore = now.minus(outboxProperties.getGapTimeout());
+        long expectedSeq = afterSeq + 1;
+        int settled = 0;
+        while (settled < changes.size()) {
+            long seq = changes.get(settled).seq();
+            if (seq != expectedSeq && !isGapSettled(expectedSeq, seq, now, settledBefore)) {
+                break;
+            }
+            expectedSeq = seq + 1;
+            settled++;
+        }
+        // Пропуски, которые уже пройдены, больше не нужны
+        gapsSeenAt.subMap(afterSeq, false, expectedSeq, false).clear();
+        return changes.subList(0, settled);
+    }
+
+    // Время обнаружения записывается для всех seq пропуска [fromSeq, toSeq), даже если ждать уже ясно, что нужно
+    private boolean isGapSettled(long fromSeq, long toSeq, Instant now, Instant settledBefore) {
+        boolean settled = true;
+        for (long seq = fromSeq; seq < toSeq; seq++) {
+            if (gapsSeenAt.computeIfAbsent(seq, key -> now).isAfter(settledBefore)) {
+                settled = false;
+            }
+        }
+        return settled;
+    }
+}
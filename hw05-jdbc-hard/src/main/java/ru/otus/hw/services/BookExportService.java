@@ -0,0 +1,10 @@
+package ru.otus.hw.services;
+
+import ru.otus.hw.dto.ExportFormat;
+import ru.otus.hw.dto.ExportResult;
+
+import java.nio.file.Path;
+
+public interface BookExportService {
+    ExportResult export(Path file, ExportFormat format, boolean gzip);
+}
@@ -0,0 +1,186 @@
+package ru.otus.hw.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import ru.otus.hw.dto.ExportFormat;
+import ru.otus.hw.dto.ExportResult;
+import ru.otus.hw.exceptions.BookExportException;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Выгружает каталог в файл, не собирая его в памяти: книги идут из курсора
+ * {@link BookService#forEach} сразу в буферизованный и при необходимости сжатый поток.
+ */
+@RequiredArgsConstructor
+@Service
+public class BookExportServiceImpl implements BookExportService {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String CSV_HEADER = "title;authorId;genreIds";
+
+    private static final char SEPARATOR = ';';
+
+    private static final char GENRES_SEPARATOR = ',';
+
+    private static final char QUOTE = '"';
+
+    private final BookService bookService;
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public ExportResult export(Path file, ExportFormat format, boolean gzip) {
+        long start = System.currentTimeMillis();
+        long rows;
+        try (Writer writer = openWriter(file, gzip)) {
+            rows = format == ExportFormat.CSV ? writeCsv(writer) : writeJsonLines(writer);
+        } catch (IOException | UncheckedIOException e) {
+            throw new BookExportException("Failed to write books to %s".formatted(file), e);
+        }
+        return new ExportResult(rows, sizeOf(file), System.currentTimeMillis() - start);
+    }
+
+    private static Writer openWriter(Path file, boolean gzip) throws IOException {
+        OutputStream out = Files.newOutputStream(file);
+        try {
+            if (gzip) {
+                out = new GZIPOutputStream(out, BUFFER_SIZE);
+            }
+            return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    private long writeCsv(Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        return writeEach(book -> {
+            writeCsvTitle(writer, book.getTitle());
+            writer.write(SEPARATOR);
+            writer.write(Long.toString(authorIdOf(book)));
+            writer.write(SEPARATOR);
+            List<Genre> genres = genresOf(book);
+            for (int i = 0; i < genres.size(); i++) {
+                if (i > 0) {
+                    writer.write(GENRES_SEPARATOR);
+                }
+                writer.write(Long.toString(genres.get(i).getId()));
+            }
+            writer.write('\n');
+        });
+    }
+
+    /**
+     * Название, в котором есть разделитель, кавычка или перевод строки, заключается в кавычки,
+     * кавычки внутри удваиваются - так его разбирает {@link BookImportServiceImpl}.
+     */
+    private static void writeCsvTitle(Writer writer, String title) throws IOException {
+        if (title == null) {
+            return;
+        }
+        if (!needsQuotes(title)) {
+            writer.write(title);
+            return;
+        }
+        writer.write(QUOTE);
+        for (int i = 0; i < title.length(); i++) {
+            char c = title.charAt(i);
+            if (c == QUOTE) {
+                writer.write(QUOTE);
+            }
+            writer.write(c);
+        }
+        writer.write(QUOTE);
+    }
+
+    private static boolean needsQuotes(String title) {
+        for (int i = 0; i < title.length(); i++) {
+            char c = title.charAt(i);
+            if (c == SEPARATOR || c == QUOTE || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // В csv автор обязателен, а книга с удаленным автором читается с пустым автором или с id 0
+    private static long authorIdOf(Book book) {
+        var author = book.getAuthor();
+        if (author == null || author.getId() == null || author.getId() == 0) {
+            throw new BookExportException("Book with id %d has no author and cannot be written to csv, use jsonl"
+                    .formatted(book.getId()));
+        }
+        return author.getId();
+    }
+
+    // Импорт требует хотя бы один жанр, а пустое поле жанров csv не прочитает
+    private static List<Genre> genresOf(Book book) {
+        var genres = book.getGenres();
+        if (genres == null || genres.isEmpty()) {
+            throw new BookExportException("Book with id %d has no genres and cannot be written to csv, use jsonl"
+                    .formatted(book.getId()));
+        }
+        return genres;
+    }
+
+    /**
+     * Один генератор Jackson на весь файл: без сброса буфера после каждой книги
+     * и без закрытия потока, который принадлежит вызывающему коду.
+     */
+    private long writeJsonLines(Writer writer) throws IOException {
+        ObjectWriter bookWriter = objectMapper.writerFor(Book.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            return writeEach(book -> {
+                bookWriter.writeValue(generator, book);
+                generator.writeRaw('\n');
+            });
+        }
+    }
+
+    private long writeEach(BookWriter bookWriter) {
+        long[] rows = {0};
+        bookService.forEach(book -> {
+            try {
+                bookWriter.write(book);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows[0]++;
+        });
+        return rows[0];
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new BookExportException("Failed to read size of %s".formatted(file), e);
+        }
+    }
+
+    private interface BookWriter {
+        void write(Book book) throws IOException;
+    }
+}
@@ -0,0 +1,9 @@
+package ru.otus.hw.services;
+
+import ru.otus.hw.dto.ImportResult;
+
+import java.nio.file.Path;
+
+public interface BookImportService {
+    ImportResult importBooks(Path file, int chunkSize);
+}
@@ -0,0 +1,234 @@
+package ru.otus.hw.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import ru.otus.hw.dto.BookCreateDto;
+import ru.otus.hw.dto.ImportResult;
+import ru.otus.hw.exceptions.BookImportException;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Загружает книги из файла, который пишет {@link BookExportServiceImpl}: jsonl с книгой целиком на строку,
+ * если имя файла оканчивается на {@code .jsonl}, иначе csv вида {@code title;authorId;genreId,genreId}.
+ * Файл с окончанием {@code .gz} перед разбором распаковывается.
+ * Первая строка csv - заголовок. Название в csv может быть в двойных кавычках, тогда кавычка внутри удваивается,
+ * а само название может занимать несколько строк файла; перевод строки в таком названии читается как {@code \n}.
+ * Каждая порция строк сохраняется в отдельной транзакции, поэтому при ошибке в середине файла
+ * предыдущие порции остаются в каталоге, а в сообщении об ошибке указывается, сколько книг загружено.
+ */
+@RequiredArgsConstructor
+@Service
+public class BookImportServiceImpl implements BookImportService {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private static final String JSONL_SUFFIX = ".jsonl";
+
+    private static final String SEPARATOR = ";";
+
+    private static final String GENRES_SEPARATOR = ",";
+
+    private static final char QUOTE = '"';
+
+    private final BookService bookService;
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public ImportResult importBooks(Path file, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        long start = System.currentTimeMillis();
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean gzip = name.endsWith(GZIP_SUFFIX);
+        boolean jsonLines = name.endsWith(gzip ? JSONL_SUFFIX + GZIP_SUFFIX : JSONL_SUFFIX);
+        var chunk = new ChunkInserter(chunkSize);
+        try (BufferedReader reader = openReader(file, gzip)) {
+            if (jsonLines) {
+                readJsonLines(reader, chunk);
+            } else {
+                readCsv(reader, chunk);
+            }
+            chunk.flush();
+        } catch (IOException e) {
+            throw new BookImportException("Failed to read books from %s, %d books imported before the failure"
+                    .formatted(file, chunk.rows), e);
+        } catch (RuntimeException e) {
+            throw new BookImportException("%s, %d books imported before the failure"
+                    .formatted(e.getMessage(), chunk.rows), e);
+        }
+        return new ImportResult(chunk.rows, System.currentTimeMillis() - start);
+    }
+
+    private static BufferedReader openReader(Path file, boolean gzip) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        try {
+            if (gzip) {
+                in = new GZIPInputStream(in, BUFFER_SIZE);
+            }
+            return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    private void readCsv(BufferedReader reader, ChunkInserter chunk) throws IOException {
+        reader.readLine();
+        int[] lineNumber = {1};
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber[0]++;
+            if (line.isBlank()) {
+                continue;
+            }
+            chunk.add(line.charAt(0) == QUOTE ? parseQuotedRecord(line, reader, lineNumber)
+                    : parseLine(line, lineNumber[0]));
+        }
+    }
+
+    // id и версия книги из файла не переносятся: книга получает новый id, как и при импорте csv
+    private void readJsonLines(BufferedReader reader, ChunkInserter chunk) throws IOException {
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            Book book;
+            try {
+                book = objectMapper.readValue(line, Book.class);
+            } catch (JsonProcessingException e) {
+                throw new BookImportException("Line %d: malformed book json".formatted(lineNumber), e);
+            }
+            chunk.add(toCreateDto(book, lineNumber));
+        }
+    }
+
+    private static BookCreateDto toCreateDto(Book book, int lineNumber) {
+        if (book.getAuthor() == null || book.getAuthor().getId() == null) {
+            throw new BookImportException("Line %d: book has no author".formatted(lineNumber));
+        }
+        Set<Long> genresIds = new HashSet<>();
+        if (book.getGenres() != null) {
+            for (Genre genre : book.getGenres()) {
+                if (genre == null || genre.getId() == null) {
+                    throw new BookImportException("Line %d: genre without id".formatted(lineNumber));
+                }
+                genresIds.add(genre.getId());
+            }
+        }
+        return new BookCreateDto(book.getTitle(), book.getAuthor().getId(), genresIds);
+    }
+
+    /**
+     * Разбирает запись с названием в кавычках. Если закрывающей кавычки нет до конца строки,
+     * название продолжается на следующих строках, номер строки при этом сдвигается.
+     */
+    private BookCreateDto parseQuotedRecord(String firstLine, BufferedReader reader, int[] lineNumber)
+            throws IOException {
+        int recordLine = lineNumber[0];
+        StringBuilder title = new StringBuilder();
+        String line = firstLine;
+        int pos = 1;
+        while (true) {
+            if (pos >= line.length()) {
+                line = reader.readLine();
+                if (line == null) {
+                    throw new BookImportException("Line %d: unterminated quoted title".formatted(recordLine));
+                }
+                lineNumber[0]++;
+                title.append('\n');
+                pos = 0;
+                continue;
+            }
+            char c = line.charAt(pos++);
+            if (c != QUOTE) {
+                title.append(c);
+            } else if (pos < line.length() && line.charAt(pos) == QUOTE) {
+                title.append(QUOTE);
+                pos++;
+            } else {
+                break;
+            }
+        }
+        if (!line.startsWith(SEPARATOR, pos)) {
+            throw new BookImportException("Line %d: expected title;authorId;genreIds".formatted(recordLine));
+        }
+        return parseFields(title.toString(), line.substring(pos + 1), recordLine);
+    }
+
+    private BookCreateDto parseLine(String line, int lineNumber) {
+        int genresStart = line.lastIndexOf(SEPARATOR);
+        int authorStart = genresStart > 0 ? line.lastIndexOf(SEPARATOR, genresStart - 1) : -1;
+        if (authorStart <= 0) {
+            throw new BookImportException("Line %d: expected title;authorId;genreIds".formatted(lineNumber));
+        }
+        return parseFields(line.substring(0, authorStart), line.substring(authorStart + 1), lineNumber);
+    }
+
+    // ids - оставшаяся после названия часть записи: authorId;genreIds
+    private BookCreateDto parseFields(String title, String ids, int lineNumber) {
+        int genresStart = ids.indexOf(SEPARATOR);
+        if (genresStart < 0) {
+            throw new BookImportException("Line %d: expected title;authorId;genreIds".formatted(lineNumber));
+        }
+        try {
+            long authorId = Long.parseLong(ids.substring(0, genresStart).trim());
+            Set<Long> genresIds = Arrays.stream(ids.substring(genresStart + 1).split(GENRES_SEPARATOR))
+                    .map(String::trim)
+                    .map(Long::parseLong)
+                    .collect(Collectors.toSet());
+            return new BookCreateDto(title, authorId, genresIds);
+        } catch (NumberFormatException e) {
+            throw new BookImportException("Line %d: wrong author or genre id".formatted(lineNumber), e);
+        }
+    }
+
+    private class ChunkInserter {
+        private final List<BookCreateDto> books;
+
+        private final int chunkSize;
+
+        private long rows;
+
+        ChunkInserter(int chunkSize) {
+            this.books = new ArrayList<>(chunkSize);
+            this.chunkSize = chunkSize;
+        }
+
+        void add(BookCreateDto book) {
+            books.add(book);
+            if (books.size() == chunkSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            rows += bookService.insertAll(books).size();
+            books.clear();
+        }
+    }
+}
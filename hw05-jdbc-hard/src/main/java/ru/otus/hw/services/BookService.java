@@ -1,19 +1,59 @@
 package ru.otus.hw.services;
 
+import ru.otus.hw.dto.BookBatchUpdateResult;
+import ru.otus.hw.dto.BookCreateDto;
+import ru.otus.hw.dto.BookFacets;
+import ru.otus.hw.dto.BookSummary;
+import ru.otus.hw.dto.BookUpdateDto;
+import ru.otus.hw.dto.GenreMatch;
 import ru.otus.hw.models.Book;
+import ru.otus.hw.snapshot.CatalogFilter;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface BookService {
     Optional<Book> findById(long id);
 
     List<Book> findAll();
 
+    List<Book> findPage(long afterId, int limit);
+
+    /**
+     * Страница книг, жанры которых читаются одним запросом на всю страницу, без соединения с жанрами.
+     * Книги и жанры читаются из одного снимка одной БД, в том числе в профиле replica,
+     * и возвращаются полностью загруженными.
+     */
+    List<Book> findPageWithBatchedGenres(long afterId, int limit);
+
+    List<BookSummary> findSummaryPage(long afterId, int limit);
+
+    List<Book> findByAuthor(long authorId, long afterId, int limit);
+
+    List<Book> findByGenres(Set<Long> genreIds, GenreMatch match, long afterId, int limit);
+
+    BookFacets findFacets();
+
+    int countBooks(CatalogFilter filter);
+
+    void forEach(Consumer<Book> action);
+
+    List<Book> search(String query, int limit);
+
     Book insert(String title, long authorId, Set<Long> genresIds);
 
+    List<Book> insertAll(Collection<BookCreateDto> books);
+
     Book update(long id, String title, long authorId, Set<Long> genresIds);
 
+    BookBatchUpdateResult updateAll(Collection<BookUpdateDto> updates);
+
+    Book modify(long id, Consumer<Book> change);
+
     void deleteById(long id);
+
+    int deleteAllByIds(Set<Long> ids);
 }
@@ -1,54 +1,342 @@
 package ru.otus.hw.services;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.otus.hw.dto.BookBatchUpdateResult;
+import ru.otus.hw.dto.BookCreateDto;
+import ru.otus.hw.dto.BookFacets;
+import ru.otus.hw.dto.BookSummary;
+import ru.otus.hw.dto.BookUpdateDto;
+import ru.otus.hw.dto.BookUpdateFailure;
+import ru.otus.hw.dto.GenreMatch;
+import ru.otus.hw.events.BooksDeletedEvent;
+import ru.otus.hw.events.BooksSavedEvent;
 import ru.otus.hw.exceptions.EntityNotFoundException;
+import ru.otus.hw.exceptions.OptimisticLockingConflictException;
+import ru.otus.hw.models.Author;
 import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
 import ru.otus.hw.repositories.AuthorRepository;
 import ru.otus.hw.repositories.BookRepository;
 import ru.otus.hw.repositories.GenreRepository;
+import ru.otus.hw.search.BookSearchIndex;
+import ru.otus.hw.snapshot.CatalogFilter;
+import ru.otus.hw.snapshot.CatalogSnapshotHolder;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.springframework.util.CollectionUtils.isEmpty;
 
 @RequiredArgsConstructor
 @Service
 public class BookServiceImpl implements BookService {
+    private static final int MAX_MODIFY_ATTEMPTS = 10;
+
+    private static final long RETRY_BACKOFF_MILLIS = 1;
+
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 64;
+
+    private static final int UPDATE_CHUNK_SIZE = 1000;
+
     private final AuthorRepository authorRepository;
 
     private final GenreRepository genreRepository;
 
     private final BookRepository bookRepository;
 
+    private final BookSearchIndex bookSearchIndex;
+
+    private final CatalogSnapshotHolder catalogSnapshotHolder;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Transactional(readOnly = true)
     @Override
     public Optional<Book> findById(long id) {
         return bookRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
     @Override
     public List<Book> findAll() {
         return bookRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public List<Book> findPage(long afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive");
+        }
+        return bookRepository.findPage(afterId, limit);
+    }
+
+    // Страница и жанры читаются двумя запросами, и при READ COMMITTED между ними может зафиксироваться
+    // изменение жанров. SERIALIZABLE в H2 дает снимок на всю транзакцию, а конфликтов у read-only транзакции нет
+    @Transactional(readOnly = true, isolation = Isolation.SERIALIZABLE)
+    @Override
+    public List<Book> findPageWithBatchedGenres(long afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive");
+        }
+        List<Book> books = bookRepository.findPageWithLazyGenres(afterId, limit);
+        // Первое обращение загружает жанры всей страницы, поэтому копирование списков стоит один запрос.
+        // Ленивые списки не выходят за транзакцию и не отказывают потом в toString или equals
+        for (Book book : books) {
+            book.setGenres(new ArrayList<>(book.getGenres()));
+        }
+        return books;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<BookSummary> findSummaryPage(long afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive");
+        }
+        return bookRepository.findSummaryPage(afterId, limit);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<Book> findByAuthor(long authorId, long afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive");
+        }
+        return bookRepository.findByAuthor(authorId, afterId, limit);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<Book> findByGenres(Set<Long> genreIds, GenreMatch match, long afterId, int limit) {
+        if (isEmpty(genreIds)) {
+            throw new IllegalArgumentException("Genres ids must not be null");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive");
+        }
+        return bookRepository.findByGenres(genreIds, match, afterId, limit);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public BookFacets findFacets() {
+        return bookRepository.findFacets();
+    }
+
+    // Снимок читается в своей транзакции только при первом обращении, дальше запрос не обращается к БД
+    @Override
+    public int countBooks(CatalogFilter filter) {
+        return catalogSnapshotHolder.count(filter);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public void forEach(Consumer<Book> action) {
+        bookRepository.forEach(action);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<Book> search(String query, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Search limit must be positive");
+        }
+        long[] ids = bookSearchIndex.search(query, limit);
+        return bookRepository.findAllByIds(Arrays.stream(ids).boxed().toList());
+    }
+
+    @Transactional
     @Override
     public Book insert(String title, long authorId, Set<Long> genresIds) {
         return save(0, title, authorId, genresIds);
     }
 
+    @Transactional
+    @Override
+    public List<Book> insertAll(Collection<BookCreateDto> books) {
+        Set<Long> authorIds = new HashSet<>();
+        Set<Long> genresIds = new HashSet<>();
+        for (BookCreateDto book : books) {
+            if (isEmpty(book.genresIds())) {
+                throw new IllegalArgumentException("Genres ids must not be null");
+            }
+            authorIds.add(book.authorId());
+            genresIds.addAll(book.genresIds());
+        }
+        if (books.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Author> authorsById = authorRepository.findAllByIds(authorIds).stream()
+                .collect(Collectors.toMap(Author::getId, Function.identity()));
+        if (authorsById.size() != authorIds.size()) {
+            throw new EntityNotFoundException("One or all authors with ids %s not found".formatted(authorIds));
+        }
+        Map<Long, Genre> genresById = genreRepository.findAllByIds(genresIds).stream()
+                .collect(Collectors.toMap(Genre::getId, Function.identity()));
+        if (genresById.size() != genresIds.size()) {
+            throw new EntityNotFoundException("One or all genres with ids %s not found".formatted(genresIds));
+        }
+
+        List<Book> newBooks = books.stream()
+                .map(book -> new Book(0L, book.title(), authorsById.get(book.authorId()),
+                        book.genresIds().stream().sorted().map(genresById::get).toList()))
+                .toList();
+        List<Book> savedBooks = bookRepository.insertAll(newBooks);
+        eventPublisher.publishEvent(new BooksSavedEvent(savedBooks));
+        return savedBooks;
+    }
+
     @Override
     public Book update(long id, String title, long authorId, Set<Long> genresIds) {
-        return save(id, title, authorId, genresIds);
+        return modify(id, book -> {
+            var edited = newBook(id, title, authorId, genresIds);
+            book.setTitle(edited.getTitle());
+            book.setAuthor(edited.getAuthor());
+            book.setGenres(edited.getGenres());
+        });
+    }
+
+    /**
+     * Пакетное изменение книг. Все упомянутые в пакете авторы и жанры проверяются двумя запросами на весь пакет,
+     * затем книги читаются и сохраняются порциями по {@value UPDATE_CHUNK_SIZE} в порядке id.
+     * Отказ по отдельной книге (повтор id, нет жанров, автора, жанра или самой книги, книгу успела изменить
+     * другая транзакция) попадает в результат и не мешает сохранить остальные книги пакета.
+     */
+    @Transactional
+    @Override
+    public BookBatchUpdateResult updateAll(Collection<BookUpdateDto> updates) {
+        List<BookUpdateFailure> failures = new ArrayList<>();
+        Map<Long, BookUpdateDto> updatesById = new TreeMap<>();
+        Set<Long> authorIds = new HashSet<>();
+        Set<Long> genresIds = new HashSet<>();
+        for (BookUpdateDto update : updates) {
+            if (isEmpty(update.genresIds())) {
+                failures.add(new BookUpdateFailure(update.id(), "Genres ids must not be null"));
+            } else if (updatesById.putIfAbsent(update.id(), update) != null) {
+                failures.add(new BookUpdateFailure(update.id(),
+                        "Book with id %d is updated more than once".formatted(update.id())));
+            } else {
+                authorIds.add(update.authorId());
+                genresIds.addAll(update.genresIds());
+            }
+        }
+        if (updatesById.isEmpty()) {
+            return new BookBatchUpdateResult(List.of(), failures);
+        }
+
+        Map<Long, Author> authorsById = authorRepository.findAllByIds(authorIds).stream()
+                .collect(Collectors.toMap(Author::getId, Function.identity()));
+        Map<Long, Genre> genresById = genreRepository.findAllByIds(genresIds).stream()
+                .collect(Collectors.toMap(Genre::getId, Function.identity()));
+        List<Long> validIds = new ArrayList<>(updatesById.size());
+        for (BookUpdateDto update : updatesById.values()) {
+            if (!authorsById.containsKey(update.authorId())) {
+                failures.add(new BookUpdateFailure(update.id(),
+                        "Author with id %d not found".formatted(update.authorId())));
+            } else if (!genresById.keySet().containsAll(update.genresIds())) {
+                failures.add(new BookUpdateFailure(update.id(),
+                        "One or all genres with ids %s not found".formatted(update.genresIds())));
+            } else {
+                validIds.add(update.id());
+            }
+        }
+
+        List<Book> updatedBooks = new ArrayList<>(validIds.size());
+        for (int from = 0; from < validIds.size(); from += UPDATE_CHUNK_SIZE) {
+            var chunk = validIds.subList(from, Math.min(from + UPDATE_CHUNK_SIZE, validIds.size()));
+            List<Book> books = bookRepository.findAllByIds(chunk);
+            for (Book book : books) {
+                var update = updatesById.get(book.getId());
+                book.setTitle(update.title());
+                book.setAuthor(authorsById.get(update.authorId()));
+                book.setGenres(update.genresIds().stream().sorted().map(genresById::get).toList());
+            }
+            List<Book> savedBooks = bookRepository.updateAll(books);
+            addChunkFailures(chunk, books, savedBooks, failures);
+            updatedBooks.addAll(savedBooks);
+        }
+        if (!updatedBooks.isEmpty()) {
+            eventPublisher.publishEvent(new BooksSavedEvent(updatedBooks));
+        }
+        return new BookBatchUpdateResult(updatedBooks, failures);
+    }
+
+    /**
+     * Читает книгу, применяет к ней изменение и сохраняет с проверкой версии. Каждая попытка идет
+     * в своей транзакции: если книгу успела изменить другая транзакция, изменение повторяется
+     * на свежем состоянии после случайной паузы, верхняя граница которой растет вдвое с каждой попыткой.
+     */
+    @Override
+    public Book modify(long id, Consumer<Book> change) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> {
+                    var book = bookRepository.findById(id)
+                            .orElseThrow(() -> new EntityNotFoundException("Book with id %d not found".formatted(id)));
+                    change.accept(book);
+                    var savedBook = bookRepository.save(book);
+                    eventPublisher.publishEvent(new BooksSavedEvent(List.of(savedBook)));
+                    return savedBook;
+                });
+            } catch (OptimisticLockingConflictException e) {
+                if (attempt == MAX_MODIFY_ATTEMPTS) {
+                    throw e;
+                }
+                backOff(attempt, e);
+            }
+        }
     }
 
+    @Transactional
     @Override
     public void deleteById(long id) {
-        bookRepository.deleteById(id);
+        deleteAllByIds(Set.of(id));
+    }
+
+    // В событии только id книг, которые были в каталоге: реплика запоминает удаленные id навсегда,
+    // и id, еще не выданный новой книге, не должен туда попасть
+    @Transactional
+    @Override
+    public int deleteAllByIds(Set<Long> ids) {
+        if (isEmpty(ids)) {
+            return 0;
+        }
+        List<Long> existingIds = bookRepository.findExistingIds(ids);
+        if (existingIds.isEmpty()) {
+            return 0;
+        }
+        int deleted = bookRepository.deleteAllByIds(existingIds);
+        eventPublisher.publishEvent(new BooksDeletedEvent(existingIds));
+        return deleted;
     }
 
     private Book save(long id, String title, long authorId, Set<Long> genresIds) {
+        var savedBook = bookRepository.save(newBook(id, title, authorId, genresIds));
+        eventPublisher.publishEvent(new BooksSavedEvent(List.of(savedBook)));
+        return savedBook;
+    }
+
+    private Book newBook(long id, String title, long authorId, Set<Long> genresIds) {
         if (isEmpty(genresIds)) {
             throw new IllegalArgumentException("Genres ids must not be null");
         }
@@ -60,7 +348,29 @@ public class BookServiceImpl implements BookService {
             throw new EntityNotFoundException("One or all genres with ids %s not found".formatted(genresIds));
         }
 
-        var book = new Book(id, title, author, genres);
-        return bookRepository.save(book);
+        return new Book(id, title, author, genres);
+    }
+
+    private static void addChunkFailures(List<Long> ids, List<Book> foundBooks, List<Book> savedBooks,
+                                         List<BookUpdateFailure> failures) {
+        Set<Long> foundIds = foundBooks.stream().map(Book::getId).collect(Collectors.toSet());
+        Set<Long> savedIds = savedBooks.stream().map(Book::getId).collect(Collectors.toSet());
+        for (long id : ids) {
+            if (!foundIds.contains(id)) {
+                failures.add(new BookUpdateFailure(id, "Book with id %d not found".formatted(id)));
+            } else if (!savedIds.contains(id)) {
+                failures.add(new BookUpdateFailure(id, "Book with id %d was changed concurrently".formatted(id)));
+            }
+        }
+    }
+
+    private static void backOff(int attempt, OptimisticLockingConflictException conflict) {
+        try {
+            long maxBackoff = Math.min(MAX_RETRY_BACKOFF_MILLIS, RETRY_BACKOFF_MILLIS << attempt);
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxBackoff + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
     }
 }
@@ -0,0 +1,46 @@
+package ru.otus.hw.snapshot;
+
+import ru.otus.hw.dto.GenreMatch;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+
+import java.util.Set;
+
+/**
+ * Условие отбора книг снимка. {@code authorId == null} - любой автор,
+ * пустой {@code genreIds} - любые жанры.
+ */
+public record CatalogFilter(Long authorId, Set<Long> genreIds, GenreMatch genreMatch) {
+    public static CatalogFilter all() {
+        return new CatalogFilter(null, Set.of(), GenreMatch.ANY);
+    }
+
+    public static CatalogFilter byAuthor(long authorId) {
+        return new CatalogFilter(authorId, Set.of(), GenreMatch.ANY);
+    }
+
+    public static CatalogFilter byGenres(Set<Long> genreIds, GenreMatch genreMatch) {
+        return new CatalogFilter(null, genreIds, genreMatch);
+    }
+
+    /**
+     * Подходит ли книга под условие так же, как строка снимка, в который она слита.
+     */
+    public boolean matches(Book book) {
+        if (authorId != null && (book.getAuthor() == null || !authorId.equals(book.getAuthor().getId()))) {
+            return false;
+        }
+        if (genreIds.isEmpty()) {
+            return true;
+        }
+        int found = 0;
+        if (book.getGenres() != null) {
+            for (Genre genre : book.getGenres()) {
+                if (genreIds.contains(genre.getId())) {
+                    found++;
+                }
+            }
+        }
+        return genreMatch == GenreMatch.ANY ? found > 0 : found == genreIds.size();
+    }
+}
@@ -0,0 +1,297 @@
+package ru.otus.hw.snapshot;
+
+import ru.otus.hw.dto.BookFacets;
+import ru.otus.hw.dto.FacetCount;
+import ru.otus.hw.dto.GenreMatch;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Неизменяемый колоночный снимок каталога для аналитических запросов: книги хранятся в примитивных
+ * массивах, упорядоченных по id, названия и имена - номерами в общей таблице строк без повторов,
+ * жанры книг - в формате CSR (смещения книги в одном общем массиве номеров жанров).
+ * Подсчет и отбор проходят по массивам без создания объектов на каждую книгу.
+ * Изменения книг применяются слиянием с новым снимком, старый снимок остается доступен тем, кто его читает.
+ */
+public final class CatalogSnapshot {
+    static final int NO_ROW = -1;
+
+    // Лишние строки накапливаются при слиянии, таблица пересобирается, когда их больше, чем нужных
+    private static final int COMPACT_RATIO = 2;
+
+    final long[] bookIds;
+
+    final int[] titleRefs;
+
+    final int[] authorRows;
+
+    final int[] genreOffsets;
+
+    final int[] genreRows;
+
+    private final NamedColumn authors;
+
+    private final NamedColumn genres;
+
+    private final String[] strings;
+
+    CatalogSnapshot(long[] bookIds, int[] titleRefs, int[] authorRows, int[] genreOffsets, int[] genreRows,
+                    NamedColumn authors, NamedColumn genres, String[] strings) {
+        this.bookIds = bookIds;
+        this.titleRefs = titleRefs;
+        this.authorRows = authorRows;
+        this.genreOffsets = genreOffsets;
+        this.genreRows = genreRows;
+        this.authors = authors;
+        this.genres = genres;
+        this.strings = strings;
+    }
+
+    public static CatalogSnapshot empty() {
+        return new CatalogSnapshotBuilder().build();
+    }
+
+    public int booksCount() {
+        return bookIds.length;
+    }
+
+    public int stringsCount() {
+        return strings.length;
+    }
+
+    public int count(CatalogFilter filter) {
+        var matcher = RowMatcher.of(filter, this);
+        if (matcher == null) {
+            return 0;
+        }
+        if (matcher.acceptsAll()) {
+            return bookIds.length;
+        }
+        int count = 0;
+        for (int row = 0; row < bookIds.length; row++) {
+            if (matcher.matches(row)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Сколько книг с id из {@code ids} есть в снимке и подходит под условие.
+     */
+    int count(CatalogFilter filter, Collection<Long> ids) {
+        var matcher = RowMatcher.of(filter, this);
+        if (matcher == null) {
+            return 0;
+        }
+        int count = 0;
+        for (long id : ids) {
+            int row = Arrays.binarySearch(bookIds, id);
+            if (row >= 0 && matcher.matches(row)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Число книг у каждого автора и каждого жанра по возрастанию id, как {@code BookRepository.findFacets}.
+     */
+    public BookFacets facets() {
+        long[] authorCounts = new long[authors.size()];
+        for (int authorRow : authorRows) {
+            if (authorRow != NO_ROW) {
+                authorCounts[authorRow]++;
+            }
+        }
+        long[] genreCounts = new long[genres.size()];
+        for (int genreRow : genreRows) {
+            genreCounts[genreRow]++;
+        }
+        return new BookFacets(facetCounts(authors, authorCounts), facetCounts(genres, genreCounts));
+    }
+
+    /**
+     * Новый снимок, в котором сохраненные книги добавлены или заменены, а удаленные убраны.
+     * Неизмененные участки копируются целиком, поэтому слияние линейно по размеру снимка
+     * и не обращается к БД.
+     */
+    public CatalogSnapshot withChanges(Collection<Book> savedBooks, Collection<Long> deletedIds) {
+        TreeMap<Long, Book> changes = new TreeMap<>();
+        savedBooks.forEach(book -> changes.put(book.getId(), book));
+        deletedIds.forEach(id -> changes.put(id, null));
+        if (changes.isEmpty()) {
+            return this;
+        }
+
+        var strings = new StringTable(this.strings);
+        var mergedAuthors = authors.withMissing(authorNames(savedBooks), strings);
+        var mergedGenres = genres.withMissing(genreNames(savedBooks), strings);
+        int[] authorMapping = authors.rowMapping(mergedAuthors);
+        int[] genreMapping = genres.rowMapping(mergedGenres);
+        int savedRelations = 0;
+        for (Book book : savedBooks) {
+            savedRelations += book.getGenres() == null ? 0 : book.getGenres().size();
+        }
+        var builder = new CatalogSnapshotBuilder(strings, mergedAuthors, mergedGenres,
+                bookIds.length + savedBooks.size(), genreRows.length + savedRelations);
+
+        int row = 0;
+        for (var change : changes.entrySet()) {
+            int position = Arrays.binarySearch(bookIds, row, bookIds.length, change.getKey());
+            int next = position < 0 ? -position - 1 : position;
+            builder.copyBooks(this, row, next, authorMapping, genreMapping);
+            row = position < 0 ? next : next + 1;
+            Book book = change.getValue();
+            if (book != null) {
+                addBook(builder, book);
+            }
+        }
+        builder.copyBooks(this, row, bookIds.length, authorMapping, genreMapping);
+
+        CatalogSnapshot merged = builder.build();
+        int liveRefs = merged.bookIds.length + mergedAuthors.size() + mergedGenres.size();
+        return merged.strings.length > COMPACT_RATIO * liveRefs ? merged.compact() : merged;
+    }
+
+    /**
+     * Тот же снимок с таблицей строк без повторов и без строк, на которые никто не ссылается.
+     */
+    CatalogSnapshot compact() {
+        var table = new StringTable();
+        int[] refMapping = new int[strings.length];
+        Arrays.fill(refMapping, NO_ROW);
+        var compactAuthors = new NamedColumn(authors.ids, remapRefs(authors.nameRefs, refMapping, table));
+        var compactGenres = new NamedColumn(genres.ids, remapRefs(genres.nameRefs, refMapping, table));
+        int[] compactTitles = remapRefs(titleRefs, refMapping, table);
+        return new CatalogSnapshot(bookIds, compactTitles, authorRows, genreOffsets, genreRows,
+                compactAuthors, compactGenres, table.toArray());
+    }
+
+    private int[] remapRefs(int[] refs, int[] refMapping, StringTable table) {
+        int[] remapped = new int[refs.length];
+        for (int i = 0; i < refs.length; i++) {
+            int ref = refs[i];
+            if (refMapping[ref] == NO_ROW) {
+                refMapping[ref] = table.ref(strings[ref]);
+            }
+            remapped[i] = refMapping[ref];
+        }
+        return remapped;
+    }
+
+    private List<FacetCount> facetCounts(NamedColumn column, long[] counts) {
+        List<FacetCount> facetCounts = new ArrayList<>(column.size());
+        for (int row = 0; row < column.size(); row++) {
+            facetCounts.add(new FacetCount(column.ids[row], strings[column.nameRefs[row]], counts[row]));
+        }
+        return facetCounts;
+    }
+
+    private static void addBook(CatalogSnapshotBuilder builder, Book book) {
+        builder.addBook(book.getId(), book.getTitle(), book.getAuthor() == null ? null : book.getAuthor().getId());
+        if (book.getGenres() != null) {
+            book.getGenres().forEach(genre -> builder.addBookGenre(genre.getId()));
+        }
+    }
+
+    private static Map<Long, String> authorNames(Collection<Book> books) {
+        Map<Long, String> names = new HashMap<>();
+        for (Book book : books) {
+            if (book.getAuthor() != null) {
+                names.put(book.getAuthor().getId(), book.getAuthor().getFullName());
+            }
+        }
+        return names;
+    }
+
+    private static Map<Long, String> genreNames(Collection<Book> books) {
+        Map<Long, String> names = new HashMap<>();
+        for (Book book : books) {
+            if (book.getGenres() != null) {
+                for (Genre genre : book.getGenres()) {
+                    names.put(genre.getId(), genre.getName());
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Условие отбора, переведенное в номера строк справочников. Жанры условия отсортированы,
+     * как и жанры каждой книги, поэтому проверка книги - один проход слиянием.
+     */
+    private record RowMatcher(CatalogSnapshot snapshot, int authorRow, int[] genreRows, GenreMatch genreMatch) {
+        // null - условию не соответствует ни одна книга
+        static RowMatcher of(CatalogFilter filter, CatalogSnapshot snapshot) {
+            int authorRow = NO_ROW;
+            if (filter.authorId() != null) {
+                authorRow = snapshot.authors.rowOf(filter.authorId());
+                if (authorRow < 0) {
+                    return null;
+                }
+            }
+            int[] genreRows = new int[filter.genreIds().size()];
+            int known = 0;
+            for (long genreId : filter.genreIds()) {
+                int row = snapshot.genres.rowOf(genreId);
+                if (row >= 0) {
+                    genreRows[known++] = row;
+                } else if (filter.genreMatch() == GenreMatch.ALL) {
+                    return null;
+                }
+            }
+            if (known == 0 && genreRows.length > 0) {
+                return null;
+            }
+            genreRows = Arrays.copyOf(genreRows, known);
+            Arrays.sort(genreRows);
+            return new RowMatcher(snapshot, authorRow, genreRows, filter.genreMatch());
+        }
+
+        boolean acceptsAll() {
+            return authorRow == NO_ROW && genreRows.length == 0;
+        }
+
+        boolean matches(int row) {
+            if (authorRow != NO_ROW && snapshot.authorRows[row] != authorRow) {
+                return false;
+            }
+            if (genreRows.length == 0) {
+                return true;
+            }
+            int[] bookGenres = snapshot.genreRows;
+            int wanted = 0;
+            for (int i = snapshot.genreOffsets[row]; i < snapshot.genreOffsets[row + 1]; i++) {
+                int genreRow = bookGenres[i];
+                while (wanted < genreRows.length && genreRows[wanted] < genreRow) {
+                    if (genreMatch == GenreMatch.ALL) {
+                        return false;
+                    }
+                    wanted++;
+                }
+                if (wanted == genreRows.length) {
+                    return false;
+                }
+                if (genreRows[wanted] == genreRow) {
+                    if (genreMatch == GenreMatch.ANY) {
+                        return true;
+                    }
+                    wanted++;
+                    if (wanted == genreRows.length) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
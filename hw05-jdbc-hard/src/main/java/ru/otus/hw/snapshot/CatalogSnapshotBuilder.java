@@ -0,0 +1,192 @@
+package ru.otus.hw.snapshot;
+
+import java.util.Arrays;
+
+import static ru.otus.hw.snapshot.CatalogSnapshot.NO_ROW;
+
+/**
+ * Собирает {@link CatalogSnapshot} построчно. Сначала передаются авторы и жанры по возрастанию id,
+ * затем книги по возрастанию id, каждая со своими жанрами сразу после нее.
+ */
+public class CatalogSnapshotBuilder {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final StringTable strings;
+
+    private long[] authorIds = new long[INITIAL_CAPACITY];
+
+    private int[] authorNameRefs = new int[INITIAL_CAPACITY];
+
+    private int authorsCount;
+
+    private long[] genreIds = new long[INITIAL_CAPACITY];
+
+    private int[] genreNameRefs = new int[INITIAL_CAPACITY];
+
+    private int genresCount;
+
+    private NamedColumn authors;
+
+    private NamedColumn genres;
+
+    private long[] bookIds = new long[INITIAL_CAPACITY];
+
+    private int[] titleRefs = new int[INITIAL_CAPACITY];
+
+    private int[] authorRows = new int[INITIAL_CAPACITY];
+
+    // CSR: жанры книги i занимают genreRows[genreOffsets[i]..genreOffsets[i + 1])
+    private int[] genreOffsets = new int[INITIAL_CAPACITY + 1];
+
+    private int[] genreRows = new int[INITIAL_CAPACITY];
+
+    private int booksCount;
+
+    private int relationsCount;
+
+    // Число книг, жанры которых уже отсортированы
+    private int sortedUpTo;
+
+    public CatalogSnapshotBuilder() {
+        this.strings = new StringTable();
+    }
+
+    CatalogSnapshotBuilder(StringTable strings, NamedColumn authors, NamedColumn genres, int expectedBooks,
+                           int expectedRelations) {
+        this.strings = strings;
+        this.authors = authors;
+        this.genres = genres;
+        ensureBooksCapacity(expectedBooks);
+        ensureRelationsCapacity(expectedRelations);
+    }
+
+    public void addAuthor(long id, String fullName) {
+        if (authorsCount == authorIds.length) {
+            authorIds = Arrays.copyOf(authorIds, authorsCount * 2);
+            authorNameRefs = Arrays.copyOf(authorNameRefs, authorsCount * 2);
+        }
+        authorIds[authorsCount] = id;
+        authorNameRefs[authorsCount++] = strings.ref(fullName);
+    }
+
+    public void addGenre(long id, String name) {
+        if (genresCount == genreIds.length) {
+            genreIds = Arrays.copyOf(genreIds, genresCount * 2);
+            genreNameRefs = Arrays.copyOf(genreNameRefs, genresCount * 2);
+        }
+        genreIds[genresCount] = id;
+        genreNameRefs[genresCount++] = strings.ref(name);
+    }
+
+    public void addBook(long id, String title, Long authorId) {
+        closeDictionaries();
+        closeLastBook();
+        ensureBooksCapacity(booksCount + 1);
+        bookIds[booksCount] = id;
+        titleRefs[booksCount] = strings.ref(title);
+        authorRows[booksCount] = authorId == null ? NO_ROW : Math.max(authors.rowOf(authorId), NO_ROW);
+        genreOffsets[booksCount] = relationsCount;
+        booksCount++;
+    }
+
+    /**
+     * Добавляет жанр последней добавленной книге. Жанры, которых нет в справочнике, пропускаются.
+     */
+    public void addBookGenre(long genreId) {
+        int row = genres.rowOf(genreId);
+        if (row < 0) {
+            return;
+        }
+        ensureRelationsCapacity(relationsCount + 1);
+        genreRows[relationsCount++] = row;
+    }
+
+    /**
+     * Копирует строки [{@code from}, {@code to}) исходного снимка целиком. {@code authorMapping}
+     * и {@code genreMapping} переводят строки справочников исходного снимка в строки справочников
+     * этого построителя, null - справочник тот же.
+     */
+    void copyBooks(CatalogSnapshot source, int from, int to, int[] authorMapping, int[] genreMapping) {
+        if (from >= to) {
+            return;
+        }
+        closeLastBook();
+        int count = to - from;
+        ensureBooksCapacity(booksCount + count);
+        System.arraycopy(source.bookIds, from, bookIds, booksCount, count);
+        System.arraycopy(source.titleRefs, from, titleRefs, booksCount, count);
+        System.arraycopy(source.authorRows, from, authorRows, booksCount, count);
+        if (authorMapping != null) {
+            for (int row = booksCount; row < booksCount + count; row++) {
+                authorRows[row] = authorRows[row] == NO_ROW ? NO_ROW : authorMapping[authorRows[row]];
+            }
+        }
+
+        int relationsFrom = source.genreOffsets[from];
+        int relationsTo = source.genreOffsets[to];
+        int shift = relationsCount - relationsFrom;
+        for (int i = 0; i < count; i++) {
+            genreOffsets[booksCount + i] = source.genreOffsets[from + i] + shift;
+        }
+        ensureRelationsCapacity(relationsCount + relationsTo - relationsFrom);
+        System.arraycopy(source.genreRows, relationsFrom, genreRows, relationsCount, relationsTo - relationsFrom);
+        if (genreMapping != null) {
+            for (int i = relationsCount; i < relationsCount + relationsTo - relationsFrom; i++) {
+                genreRows[i] = genreMapping[genreRows[i]];
+            }
+            // Новые жанры встают в середину справочника, порядок строк внутри книги сохраняется,
+            // потому что отображение монотонно
+        }
+        relationsCount += relationsTo - relationsFrom;
+        booksCount += count;
+        sortedUpTo = booksCount;
+    }
+
+    public CatalogSnapshot build() {
+        closeDictionaries();
+        closeLastBook();
+        genreOffsets[booksCount] = relationsCount;
+        return new CatalogSnapshot(
+                Arrays.copyOf(bookIds, booksCount),
+                Arrays.copyOf(titleRefs, booksCount),
+                Arrays.copyOf(authorRows, booksCount),
+                Arrays.copyOf(genreOffsets, booksCount + 1),
+                Arrays.copyOf(genreRows, relationsCount),
+                authors, genres, strings.toArray());
+    }
+
+    private void closeLastBook() {
+        if (sortedUpTo < booksCount) {
+            int last = booksCount - 1;
+            Arrays.sort(genreRows, genreOffsets[last], relationsCount);
+            sortedUpTo = booksCount;
+        }
+    }
+
+    private void closeDictionaries() {
+        if (authors == null) {
+            authors = new NamedColumn(Arrays.copyOf(authorIds, authorsCount),
+                    Arrays.copyOf(authorNameRefs, authorsCount));
+        }
+        if (genres == null) {
+            genres = new NamedColumn(Arrays.copyOf(genreIds, genresCount), Arrays.copyOf(genreNameRefs, genresCount));
+        }
+    }
+
+    private void ensureBooksCapacity(int capacity) {
+        if (capacity <= bookIds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, bookIds.length * 2);
+        bookIds = Arrays.copyOf(bookIds, newCapacity);
+        titleRefs = Arrays.copyOf(titleRefs, newCapacity);
+        authorRows = Arrays.copyOf(authorRows, newCapacity);
+        genreOffsets = Arrays.copyOf(genreOffsets, newCapacity + 1);
+    }
+
+    private void ensureRelationsCapacity(int capacity) {
+        if (capacity > genreRows.length) {
+            genreRows = Arrays.copyOf(genreRows, Math.max(capacity, genreRows.length * 2));
+        }
+    }
+}
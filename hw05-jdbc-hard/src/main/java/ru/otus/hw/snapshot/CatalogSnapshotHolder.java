@@ -0,0 +1,150 @@
+package ru.otus.hw.snapshot;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.otus.hw.events.BooksDeletedEvent;
+import ru.otus.hw.events.BooksSavedEvent;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.repositories.CatalogSnapshotRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Хранит текущий снимок каталога. Снимок читается из БД при первом обращении, а изменения из событий
+ * о сохранении и удалении книг после фиксации транзакции копятся поверх него: фиксация копирует только
+ * небольшой набор измененных книг, а не массивы снимка. Когда изменений набирается {@value #MERGE_THRESHOLD},
+ * они сливаются со снимком в фоне, и изменения, пришедшие за время слияния, остаются поверх нового снимка.
+ * Читатели получают снимок и изменения без блокировок, изменения применяются по одному под общей блокировкой.
+ * Событие, пришедшее во время загрузки, ждет ее окончания и применяется к загруженному снимку:
+ * изменение поверх снимка заменяет книгу целиком, поэтому изменение, уже попавшее в снимок, ничего не испортит.
+ */
+@Component
+public class CatalogSnapshotHolder {
+    static final int MERGE_THRESHOLD = 1024;
+
+    private final CatalogSnapshotRepository repository;
+
+    private final TransactionTemplate readTransaction;
+
+    private final Object lock = new Object();
+
+    private volatile CatalogView view;
+
+    // Меняется только под блокировкой
+    private CompletableFuture<Void> merge = CompletableFuture.completedFuture(null);
+
+    public CatalogSnapshotHolder(CatalogSnapshotRepository repository, PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+        readTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Число книг по условию: книги снимка без измененных после него плюс подходящие сохраненные книги.
+     */
+    public int count(CatalogFilter filter) {
+        var current = view();
+        int count = current.snapshot().count(filter) - current.snapshot().count(filter, current.changes().keySet());
+        for (Book book : current.changes().values()) {
+            if (book != null && filter.matches(book)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksSaved(BooksSavedEvent event) {
+        Map<Long, Book> changes = new HashMap<>();
+        event.books().forEach(book -> changes.put(book.getId(), book));
+        addChanges(changes);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksDeleted(BooksDeletedEvent event) {
+        Map<Long, Book> changes = new HashMap<>();
+        event.ids().forEach(id -> changes.put(id, null));
+        addChanges(changes);
+    }
+
+    int pendingChanges() {
+        var current = view;
+        return current == null ? 0 : current.changes().size();
+    }
+
+    CompletableFuture<Void> pendingMerge() {
+        synchronized (lock) {
+            return merge;
+        }
+    }
+
+    /**
+     * Сливает накопленные изменения со снимком. Слияние копирует все массивы снимка, поэтому идет
+     * без блокировки, а под ней только подменяется снимок и убираются слитые изменения.
+     */
+    void mergeChanges() {
+        var source = view;
+        if (source == null || source.changes().isEmpty()) {
+            return;
+        }
+        List<Book> savedBooks = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        source.changes().forEach((id, book) -> {
+            if (book == null) {
+                deletedIds.add(id);
+            } else {
+                savedBooks.add(book);
+            }
+        });
+        var merged = source.snapshot().withChanges(savedBooks, deletedIds);
+        synchronized (lock) {
+            Map<Long, Book> rest = new HashMap<>();
+            view.changes().forEach((id, book) -> {
+                if (!source.changes().containsKey(id) || source.changes().get(id) != book) {
+                    rest.put(id, book);
+                }
+            });
+            view = new CatalogView(merged, Collections.unmodifiableMap(rest));
+        }
+    }
+
+    private CatalogView view() {
+        var current = view;
+        if (current != null) {
+            return current;
+        }
+        synchronized (lock) {
+            if (view == null) {
+                view = new CatalogView(readTransaction.execute(status -> repository.load()), Map.of());
+            }
+            return view;
+        }
+    }
+
+    private void addChanges(Map<Long, Book> newChanges) {
+        synchronized (lock) {
+            if (view == null) {
+                return;
+            }
+            Map<Long, Book> changes = new HashMap<>(view.changes());
+            changes.putAll(newChanges);
+            view = new CatalogView(view.snapshot(), Collections.unmodifiableMap(changes));
+            if (changes.size() >= MERGE_THRESHOLD && merge.isDone()) {
+                merge = CompletableFuture.runAsync(this::mergeChanges);
+            }
+        }
+    }
+
+    // Удаленная книга хранится в изменениях как null
+    private record CatalogView(CatalogSnapshot snapshot, Map<Long, Book> changes) {
+    }
+}
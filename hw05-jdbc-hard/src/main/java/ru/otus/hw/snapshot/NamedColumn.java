@@ -0,0 +1,81 @@
+package ru.otus.hw.snapshot;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Колонки справочника снимка: id по возрастанию и номера имен в таблице строк.
+ * Номер строки справочника служит ссылкой на автора или жанр в колонках книг.
+ */
+final class NamedColumn {
+    final long[] ids;
+
+    final int[] nameRefs;
+
+    NamedColumn(long[] ids, int[] nameRefs) {
+        this.ids = ids;
+        this.nameRefs = nameRefs;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * Номер строки с данным id или отрицательное число, если такого id нет.
+     */
+    int rowOf(long id) {
+        return Arrays.binarySearch(ids, id);
+    }
+
+    /**
+     * Справочник, дополненный отсутствующими в нем записями. Если добавлять нечего, возвращается тот же объект.
+     */
+    NamedColumn withMissing(Map<Long, String> names, StringTable strings) {
+        Map<Long, String> missing = new TreeMap<>();
+        names.forEach((id, name) -> {
+            if (rowOf(id) < 0) {
+                missing.put(id, name);
+            }
+        });
+        if (missing.isEmpty()) {
+            return this;
+        }
+        long[] mergedIds = Arrays.copyOf(ids, ids.length + missing.size());
+        int[] mergedRefs = Arrays.copyOf(nameRefs, nameRefs.length + missing.size());
+        int row = ids.length;
+        for (var entry : missing.entrySet()) {
+            mergedIds[row] = entry.getKey();
+            mergedRefs[row++] = strings.ref(entry.getValue());
+        }
+        // Сортировка пар по id: справочники маленькие, поэтому достаточно вставок
+        for (int i = 1; i < mergedIds.length; i++) {
+            long id = mergedIds[i];
+            int ref = mergedRefs[i];
+            int j = i - 1;
+            for (; j >= 0 && mergedIds[j] > id; j--) {
+                mergedIds[j + 1] = mergedIds[j];
+                mergedRefs[j + 1] = mergedRefs[j];
+            }
+            mergedIds[j + 1] = id;
+            mergedRefs[j + 1] = ref;
+        }
+        return new NamedColumn(mergedIds, mergedRefs);
+    }
+
+    /**
+     * Для каждой строки этого справочника - номер строки с тем же id в {@code target},
+     * или null, если это один и тот же справочник.
+     */
+    int[] rowMapping(NamedColumn target) {
+        if (target == this) {
+            return null;
+        }
+        int[] mapping = new int[ids.length];
+        for (int row = 0; row < ids.length; row++) {
+            mapping[row] = target.rowOf(ids[row]);
+        }
+        return mapping;
+    }
+}
@@ -0,0 +1,48 @@
+package ru.otus.hw.snapshot;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Таблица строк снимка: колонки хранят не строки, а их номера в таблице, одинаковые строки хранятся один раз.
+ */
+class StringTable {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<String, Integer> refs = new HashMap<>();
+
+    private String[] values;
+
+    private int size;
+
+    StringTable() {
+        values = new String[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Продолжает таблицу существующего снимка без повторного хеширования его строк, поэтому новая строка
+     * может повторить одну из старых. Лишние строки убирает {@link CatalogSnapshot#compact()}.
+     */
+    StringTable(String[] base) {
+        values = Arrays.copyOf(base, base.length + INITIAL_CAPACITY);
+        size = base.length;
+    }
+
+    int ref(String value) {
+        Integer ref = refs.get(value);
+        if (ref != null) {
+            return ref;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        refs.put(value, size);
+        return size++;
+    }
+
+    String[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,2 @@
+-- Версия книги для оптимистической блокировки, у существующих книг начинается с 0
+alter table books add column if not exists version bigint default 0 not null;
@@ -0,0 +1,15 @@
+-- Журнал изменений книг (outbox) и позиции ретрансляторов журнала
+create table if not exists book_changes (
+    seq bigserial,
+    book_id bigint not null,
+    change_type varchar(16) not null,
+    book_version bigint not null,
+    changed_at timestamp default current_timestamp not null,
+    primary key (seq)
+);
+
+create table if not exists outbox_positions (
+    relay varchar(64),
+    last_seq bigint not null,
+    primary key (relay)
+);
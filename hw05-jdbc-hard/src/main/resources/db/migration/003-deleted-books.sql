@@ -0,0 +1,5 @@
+-- Id удаленных книг на реплике
+create table if not exists deleted_books (
+    id bigint,
+    primary key (id)
+);
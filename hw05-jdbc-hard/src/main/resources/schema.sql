@@ -13,12 +13,48 @@ create table genres (
 create table books (
     id bigserial,
     title varchar(255),
-    author_id bigint references authors (id) on delete cascade,
+    author_id bigint,
+    version bigint default 0 not null,
     primary key (id)
 );
 
 create table books_genres (
-    book_id bigint references books(id) on delete cascade,
-    genre_id bigint references genres(id) on delete cascade,
+    book_id bigint,
+    genre_id bigint,
     primary key (book_id, genre_id)
-);
\ No newline at end of file
+);
+
+-- Индексы создаются до внешних ключей, чтобы H2 использовал их для ключей, а не создавал безымянные дубликаты
+create index idx_books_author_id on books (author_id);
+create index idx_books_genres_genre_id on books_genres (genre_id);
+
+alter table books add constraint fk_books_author_id
+    foreign key (author_id) references authors (id) on delete cascade;
+alter table books_genres add constraint fk_books_genres_book_id
+    foreign key (book_id) references books (id) on delete cascade;
+alter table books_genres add constraint fk_books_genres_genre_id
+    foreign key (genre_id) references genres (id) on delete cascade;
+
+-- Журнал изменений книг (outbox). Строки добавляются в транзакции изменения, seq растет вместе с порядком вставки
+create table book_changes (
+    seq bigserial,
+    book_id bigint not null,
+    change_type varchar(16) not null,
+    book_version bigint not null,
+    changed_at timestamp default current_timestamp not null,
+    primary key (seq)
+);
+
+-- Последний seq, переданный приемнику каждым ретранслятором журнала
+create table outbox_positions (
+    relay varchar(64),
+    last_seq bigint not null,
+    primary key (relay)
+);
+
+-- Id удаленных книг на реплике: устаревшее сохранение, пришедшее после удаления, не возвращает книгу.
+-- Id книг не переиспользуются, поэтому записи не удаляются
+create table deleted_books (
+    id bigint,
+    primary key (id)
+);
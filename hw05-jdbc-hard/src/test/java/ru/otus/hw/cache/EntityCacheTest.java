@@ -0,0 +1,94 @@
+package ru.otus.hw.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Кэш сущностей по id ")
+class EntityCacheTest {
+
+    @DisplayName("должен считать попадания и промахи")
+    @Test
+    void shouldCountHitsAndMisses() {
+        var cache = new EntityCache<String>(10, Duration.ofMinutes(1), Clock.systemUTC());
+        assertThat(cache.get(1)).isEmpty();
+        cache.put(1, "one");
+        assertThat(cache.get(1)).contains("one");
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @DisplayName("должен вытеснять давно не использованную запись при переполнении")
+    @Test
+    void shouldEvictLeastRecentlyUsedEntry() {
+        var cache = new EntityCache<String>(2, Duration.ofMinutes(1), Clock.systemUTC());
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.get(1);
+        cache.put(3, "three");
+        assertThat(cache.get(2)).isEmpty();
+        assertThat(cache.get(1)).contains("one");
+        assertThat(cache.get(3)).contains("three");
+    }
+
+    @DisplayName("должен забывать записи после истечения времени жизни")
+    @Test
+    void shouldExpireEntries() {
+        var clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        var cache = new EntityCache<String>(10, Duration.ofSeconds(5), clock);
+        cache.put(1, "one");
+        assertThat(cache.getAll(() -> List.of("one"))).containsExactly("one");
+        assertThat(cache.get(1)).contains("one");
+        assertThat(cache.getAll(() -> List.of("other"))).containsExactly("one");
+
+        clock.advance(Duration.ofSeconds(5));
+        assertThat(cache.get(1)).isEmpty();
+        assertThat(cache.getAll(() -> List.of("other"))).containsExactly("other");
+    }
+
+    @DisplayName("должен сбрасывать все записи при инвалидации")
+    @Test
+    void shouldInvalidateAllEntries() {
+        var cache = new EntityCache<String>(10, Duration.ofMinutes(1), Clock.systemUTC());
+        cache.put(1, "one");
+        cache.getAll(() -> List.of("one"));
+        cache.invalidateAll();
+        assertThat(cache.get(1)).isEmpty();
+        assertThat(cache.getAll(() -> List.of("other"))).containsExactly("other");
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ru.otus.hw.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Инициализатор схемы каталога ")
+class CatalogSchemaInitializerTest {
+
+    @TempDir
+    private Path catalogDir;
+
+    private DriverManagerDataSource dataSource;
+
+    private JdbcTemplate jdbc;
+
+    private SqlInitializationProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:file:" + catalogDir.resolve("library"));
+        jdbc = new JdbcTemplate(dataSource);
+        properties = new SqlInitializationProperties();
+        properties.setMode(DatabaseInitializationMode.ALWAYS);
+        properties.setSchemaLocations(List.of("classpath:schema.sql"));
+        properties.setDataLocations(List.of("classpath:data.sql"));
+    }
+
+    @DisplayName("должен выполнять скрипты только для пустого файлового каталога")
+    @Test
+    void shouldInitializeOnlyEmptyCatalog() {
+        assertThat(new CatalogSchemaInitializer(dataSource, properties).initializeDatabase()).isTrue();
+        jdbc.update("delete from books where id = 1");
+
+        assertThat(new CatalogSchemaInitializer(dataSource, properties).initializeDatabase()).isFalse();
+        assertThat(jdbc.queryForObject("select count(*) from books", Long.class)).isEqualTo(2);
+    }
+
+    @DisplayName("должен доводить каталог, созданный прежней версией приложения, до текущей схемы")
+    @Test
+    void shouldMigrateCatalogCreatedBeforeVersionsAndOutbox() {
+        jdbc.execute("create table authors (id bigserial, full_name varchar(255), primary key (id))");
+        jdbc.execute("create table genres (id bigserial, name varchar(255), primary key (id))");
+        jdbc.execute("create table books (id bigserial, title varchar(255), author_id bigint, primary key (id))");
+        jdbc.execute("create table books_genres (book_id bigint, genre_id bigint, primary key (book_id, genre_id))");
+        jdbc.update("insert into authors (full_name) values ('Author_1')");
+        jdbc.update("insert into books (title, author_id) values ('OldBook', 1)");
+
+        for (int run = 0; run < 2; run++) {
+            assertThat(new CatalogSchemaInitializer(dataSource, properties).initializeDatabase()).isFalse();
+        }
+
+        assertThat(jdbc.queryForMap("select title, version from books"))
+                .containsEntry("TITLE", "OldBook").containsEntry("VERSION", 0L);
+        jdbc.update("insert into book_changes (book_id, change_type, book_version) values (1, 'SAVED', 0)");
+        jdbc.update("insert into outbox_positions (relay, last_seq) values ('relay', 1)");
+        assertThat(jdbc.queryForObject("select count(*) from book_changes", Long.class)).isEqualTo(1);
+        jdbc.update("insert into deleted_books (id) values (2)");
+    }
+}
@@ -0,0 +1,248 @@
+package ru.otus.hw.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.otus.hw.events.BooksSavedEvent;
+import ru.otus.hw.models.Author;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.replication.CatalogReplicator;
+import ru.otus.hw.repositories.BookRepository;
+import ru.otus.hw.services.BookService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Разделение чтений и записей между основной БД и репликой ")
+@SpringBootTest(properties = {
+        "spring.shell.interactive.enabled=false",
+        "spring.shell.noninteractive.enabled=false",
+        "spring.shell.script.enabled=false"})
+@ActiveProfiles("replica")
+class ReadReplicaConfigTest {
+    private static final int READERS = 8;
+
+    private static final int WRITES = 200;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CatalogReplicator catalogReplicator;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private HikariDataSource replicaDataSource;
+
+    private JdbcTemplate primaryJdbc;
+
+    private JdbcTemplate replicaJdbc;
+
+    @BeforeEach
+    void setUp() {
+        primaryJdbc = new JdbcTemplate(primaryDataSource);
+        replicaJdbc = new JdbcTemplate(replicaDataSource);
+    }
+
+    @DisplayName("должно читать в read-only транзакциях из реплики, а изменять книги в основной БД")
+    @Test
+    void shouldReadFromReplicaAndWriteToPrimary() {
+        replicaJdbc.update("update books set title = 'ReplicaTitle' where id = 1");
+        try {
+            assertThat(bookService.findById(1L)).get().extracting(Book::getTitle).isEqualTo("ReplicaTitle");
+            assertThat(primaryJdbc.queryForObject("select title from books where id = 1", String.class))
+                    .isEqualTo("BookTitle_1");
+        } finally {
+            replicaJdbc.update("update books set title = 'BookTitle_1' where id = 1");
+        }
+    }
+
+    @DisplayName("должно повторять на реплике изменения книг после фиксации транзакции")
+    @Test
+    void shouldReplicateBookChanges() {
+        long id = bookService.insert("ReplicatedBook", 2L, Set.of(1L, 3L)).getId();
+        assertThat(replicaRow(id)).containsEntry("TITLE", "ReplicatedBook").containsEntry("VERSION", 0L);
+        assertThat(replicaJdbc.queryForList("select genre_id from books_genres where book_id = ? order by genre_id",
+                Long.class, id)).containsExactly(1L, 3L);
+
+        bookService.update(id, "ReplicatedBook_2", 3L, Set.of(2L));
+        assertThat(replicaRow(id)).containsEntry("TITLE", "ReplicatedBook_2").containsEntry("VERSION", 1L);
+        assertThat(bookService.findById(id)).get()
+                .satisfies(book -> assertThat(book.getVersion()).isEqualTo(1))
+                .satisfies(book -> assertThat(book.getGenres()).extracting(Genre::getId).containsExactly(2L));
+
+        bookService.deleteAllByIds(Set.of(id));
+        assertThat(replicaJdbc.queryForObject("select count(*) from books where id = ?", Long.class, id)).isZero();
+        assertThat(replicaJdbc.queryForObject("select count(*) from books_genres where book_id = ?", Long.class, id))
+                .isZero();
+    }
+
+    @DisplayName("не должно затирать на реплике новую версию книги событием, пришедшим позже более старого")
+    @Test
+    void shouldIgnoreOutOfOrderBookEvents() {
+        long id = bookService.insert("OutOfOrderBook", 1L, Set.of(1L)).getId();
+        var newer = new Book(id, "OutOfOrderBook_v2", new Author(2L, null), List.of(new Genre(2L, null)), 2);
+        var older = new Book(id, "OutOfOrderBook_v1", new Author(3L, null), List.of(new Genre(3L, null)), 1);
+        try {
+            catalogReplicator.onBooksSaved(new BooksSavedEvent(List.of(newer)));
+            catalogReplicator.onBooksSaved(new BooksSavedEvent(List.of(older)));
+
+            assertThat(replicaRow(id)).containsEntry("TITLE", "OutOfOrderBook_v2").containsEntry("VERSION", 2L);
+            assertThat(replicaJdbc.queryForList("select genre_id from books_genres where book_id = ?", Long.class, id))
+                    .containsExactly(2L);
+        } finally {
+            bookService.deleteAllByIds(Set.of(id));
+        }
+    }
+
+    @DisplayName("не должно возвращать на реплику удаленную книгу сохранением, пришедшим после удаления")
+    @Test
+    void shouldNotResurrectDeletedBook() {
+        var saved = bookService.insert("DeletedBook", 1L, Set.of(1L));
+        bookService.deleteAllByIds(Set.of(saved.getId()));
+
+        catalogReplicator.onBooksSaved(new BooksSavedEvent(List.of(saved)));
+
+        assertThat(replicaJdbc.queryForObject("select count(*) from books where id = ?", Long.class, saved.getId()))
+                .isZero();
+        assertThat(replicaJdbc.queryForObject("select count(*) from books_genres where book_id = ?", Long.class,
+                saved.getId())).isZero();
+
+        bookService.deleteAllByIds(Set.of(Long.MAX_VALUE));
+        assertThat(replicaJdbc.queryForObject("select count(*) from deleted_books where id = ?", Long.class,
+                Long.MAX_VALUE)).isZero();
+    }
+
+    @DisplayName("должно читать ленивые жанры страницы из той же реплики и того же снимка, что и книги")
+    @Test
+    void shouldLoadLazyGenresFromPageSnapshot() {
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        replicaJdbc.update("insert into books_genres(book_id, genre_id) values (1, 6)");
+        try {
+            // Жанр есть только на реплике и удаляется из нее уже после чтения страницы
+            var genres = transactionTemplate.execute(status -> {
+                var books = bookRepository.findPageWithLazyGenres(0, 3);
+                replicaJdbc.update("delete from books_genres where book_id = 1 and genre_id = 6");
+                return books.stream().map(book -> book.getGenres().stream().map(Genre::getId).toList()).toList();
+            });
+
+            assertThat(genres).containsExactly(List.of(1L, 2L, 6L), List.of(3L, 4L), List.of(5L, 6L));
+        } finally {
+            replicaJdbc.update("delete from books_genres where book_id = 1 and genre_id = 6");
+        }
+    }
+
+    @DisplayName("должно возвращать страницу с жанрами из реплики, загруженными до конца транзакции")
+    @Test
+    void shouldReturnPageWithLoadedGenres() {
+        replicaJdbc.update("insert into books_genres(book_id, genre_id) values (1, 6)");
+        try {
+            var books = bookService.findPageWithBatchedGenres(0, 3);
+
+            assertThat(books).extracting(book -> book.getGenres().stream().map(Genre::getId).toList())
+                    .containsExactly(List.of(1L, 2L, 6L), List.of(3L, 4L), List.of(5L, 6L));
+            assertThat(books.get(0).toString()).contains("BookTitle_1");
+            assertThat(books).isEqualTo(bookService.findPageWithBatchedGenres(0, 3));
+        } finally {
+            replicaJdbc.update("delete from books_genres where book_id = 1 and genre_id = 6");
+        }
+    }
+
+    @DisplayName("не должно загружать ленивые жанры страницы после завершения ее транзакции")
+    @Test
+    void shouldRejectLazyGenresAfterTransaction() {
+        var books = new TransactionTemplate(transactionManager)
+                .execute(status -> bookRepository.findPageWithLazyGenres(0, 3));
+
+        assertThatThrownBy(() -> books.get(0).getGenres().size()).isInstanceOf(IllegalStateException.class);
+    }
+
+    @DisplayName("должно строить поисковый индекс из основной БД, а не из отстающей реплики")
+    @Test
+    void shouldBuildSearchIndexFromPrimary() {
+        // Изменение, которое реплика еще не получила, а событие о нем пришло до построения индекса
+        primaryJdbc.update("update books set title = 'PrimaryOnlyTitle' where id = 1");
+        try {
+            assertThat(bookService.search("primaryonlytitle", 10)).extracting(Book::getId).containsExactly(1L);
+        } finally {
+            primaryJdbc.update("update books set title = 'BookTitle_1' where id = 1");
+        }
+    }
+
+    @DisplayName("не должно заставлять записи ждать соединений, пока чтения заняли пул реплики")
+    @Test
+    void shouldNotMakeWritesWaitForReads() throws Exception {
+        var stop = new AtomicBoolean();
+        ExecutorService readers = Executors.newFixedThreadPool(READERS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            futures.add(readers.submit(() -> {
+                while (!stop.get()) {
+                    bookService.findPage(0, 100);
+                }
+            }));
+        }
+        long[] latencies = new long[WRITES];
+        List<Long> ids = new ArrayList<>();
+        int primaryWaiters = 0;
+        try {
+            for (int i = 0; i < WRITES; i++) {
+                long start = System.nanoTime();
+                ids.add(bookService.insert("LoadBook_" + i, 1L, Set.of(1L)).getId());
+                latencies[i] = System.nanoTime() - start;
+                primaryWaiters = Math.max(primaryWaiters,
+                        primaryDataSource.getHikariPoolMXBean().getThreadsAwaitingConnection());
+            }
+        } finally {
+            stop.set(true);
+            readers.shutdown();
+            readers.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        bookService.deleteAllByIds(Set.copyOf(ids));
+
+        Arrays.sort(latencies);
+        assertThat(primaryWaiters).as("Inserts under %d readers: p50 %d us, p99 %d us", READERS,
+                        latencies[WRITES / 2] / 1000, latencies[WRITES * 99 / 100] / 1000)
+                .isZero();
+    }
+
+    private Map<String, Object> replicaRow(long id) {
+        return replicaJdbc.queryForMap("select title, version from books where id = ?", id);
+    }
+}
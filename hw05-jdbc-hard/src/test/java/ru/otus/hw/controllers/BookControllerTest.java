@@ -0,0 +1,169 @@
+package ru.otus.hw.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import ru.otus.hw.dto.BookBatchUpdateResult;
+import ru.otus.hw.dto.BookCreateDto;
+import ru.otus.hw.dto.BookUpdateDto;
+import ru.otus.hw.metrics.RequestTimingFilter;
+import ru.otus.hw.models.Book;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("HTTP API для работы с книгами ")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("http")
+class BookControllerTest {
+    private static final int CLIENTS = 1000;
+
+    private static final int REQUESTS_PER_CLIENT = 20;
+
+    private static final long LOAD_TIMEOUT_SECONDS = 120;
+
+    private static final int CLIENT_THREADS = 8;
+
+    // Своя фиксированная группа потоков: по умолчанию HttpClient создает поток почти на каждый ответ,
+    // и под нагрузкой узким местом становится генератор запросов, а не сервер
+    private final ExecutorService clientExecutor = Executors.newFixedThreadPool(CLIENT_THREADS);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(clientExecutor)
+            .build();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @AfterEach
+    void tearDown() {
+        clientExecutor.shutdownNow();
+    }
+
+    @DisplayName("должен создавать, читать, изменять и удалять книгу")
+    @Test
+    void shouldPerformCrudOperations() throws Exception {
+        var created = send(HttpRequest.newBuilder(uri("/api/books"))
+                .POST(json(new BookCreateDto("HttpBook", 1, Set.of(1L, 2L)))));
+        assertThat(created.statusCode()).isEqualTo(201);
+        var book = objectMapper.readValue(created.body(), Book.class);
+        assertThat(book.getId()).isPositive();
+
+        var updated = send(HttpRequest.newBuilder(uri("/api/books/" + book.getId()))
+                .PUT(json(new BookCreateDto("HttpBookEdited", 2, Set.of(3L)))));
+        assertThat(updated.statusCode()).isEqualTo(200);
+
+        var found = send(HttpRequest.newBuilder(uri("/api/books/" + book.getId())).GET());
+        assertThat(objectMapper.readValue(found.body(), Book.class))
+                .matches(actual -> actual.getTitle().equals("HttpBookEdited"))
+                .matches(actual -> actual.getAuthor().getId() == 2)
+                .matches(actual -> actual.getGenres().size() == 1);
+
+        var batchUpdated = send(HttpRequest.newBuilder(uri("/api/books"))
+                .PUT(json(List.of(new BookUpdateDto(book.getId(), "HttpBookBatch", 1, Set.of(2L)),
+                        new BookUpdateDto(Long.MAX_VALUE, "HttpBookMissing", 1, Set.of(2L))))));
+        assertThat(batchUpdated.statusCode()).isEqualTo(200);
+        assertThat(objectMapper.readValue(batchUpdated.body(), BookBatchUpdateResult.class))
+                .matches(result -> result.updated().size() == 1)
+                .matches(result -> result.failures().get(0).bookId() == Long.MAX_VALUE);
+
+        assertThat(send(HttpRequest.newBuilder(uri("/api/books/" + book.getId())).DELETE()).statusCode())
+                .isEqualTo(204);
+        assertThat(send(HttpRequest.newBuilder(uri("/api/books/" + book.getId())).GET()).statusCode())
+                .isEqualTo(404);
+        assertThat(send(HttpRequest.newBuilder(uri("/api/books?limit=0")).GET()).statusCode())
+                .isEqualTo(400);
+        assertThat(send(HttpRequest.newBuilder(uri("/api/books?limit=1001")).GET()).statusCode())
+                .isEqualTo(400);
+        assertThat(send(HttpRequest.newBuilder(uri("/api/books/summaries?limit=1001")).GET()).statusCode())
+                .isEqualTo(400);
+        assertThat(send(HttpRequest.newBuilder(uri("/api/books/all")).GET()).statusCode())
+                .isNotEqualTo(200);
+    }
+
+    @DisplayName("должен сводить нестандартные HTTP-методы к одному тегу метрики")
+    @Test
+    void shouldTagUnknownMethodsAsOther() throws Exception {
+        for (String method : List.of("BREW", "PROPFIND", "X-RANDOM-1", "X-RANDOM-2")) {
+            send(HttpRequest.newBuilder(uri("/api/books/1")).method(method, HttpRequest.BodyPublishers.noBody()));
+        }
+
+        assertThat(registry.find(RequestTimingFilter.HTTP_METRIC).timers())
+                .extracting(timer -> timer.getId().getTag("method"))
+                .doesNotContain("BREW", "PROPFIND", "X-RANDOM-1", "X-RANDOM-2")
+                .contains("OTHER");
+    }
+
+    @DisplayName("должен обслуживать тысячу одновременных клиентов")
+    @Test
+    void shouldServeConcurrentClients() throws Exception {
+        List<URI> uris = List.of(uri("/api/books/1"), uri("/api/books?limit=10"),
+                uri("/api/books/search?query=booktitle"), uri("/api/authors"));
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Integer>> clients = IntStream.range(0, CLIENTS)
+                .mapToObj(client -> runClient(uris, client))
+                .toList();
+        CompletableFuture.allOf(clients.toArray(CompletableFuture[]::new))
+                .get(LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        long elapsedNanos = System.nanoTime() - start;
+
+        int succeeded = clients.stream().mapToInt(CompletableFuture::join).sum();
+        assertThat(succeeded).as("HTTP: %d clients, %d requests in %d ms", CLIENTS, succeeded,
+                        TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .isEqualTo(CLIENTS * REQUESTS_PER_CLIENT);
+
+        var timers = registry.find(RequestTimingFilter.HTTP_METRIC).tag("status", "200").timers();
+        assertThat(timers.stream().mapToLong(Timer::count).sum()).isGreaterThanOrEqualTo(succeeded);
+    }
+
+    // Клиент отправляет запросы по одному, следующий - после ответа на предыдущий
+    private CompletableFuture<Integer> runClient(List<URI> uris, int client) {
+        CompletableFuture<Integer> succeeded = CompletableFuture.completedFuture(0);
+        for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+            var request = HttpRequest.newBuilder(uris.get((client + i) % uris.size())).GET().build();
+            succeeded = succeeded.thenCompose(count -> httpClient
+                    .sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenApply(response -> response.statusCode() == 200 ? count + 1 : count));
+        }
+        return succeeded;
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return httpClient.send(request.header("Content-Type", "application/json").build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.BodyPublisher json(Object body) throws Exception {
+        return HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body));
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
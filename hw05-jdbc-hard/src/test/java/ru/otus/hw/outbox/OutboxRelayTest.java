@@ -0,0 +1,214 @@
+package ru.otus.hw.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.otus.hw.dto.BookChange;
+import ru.otus.hw.dto.BookChangeType;
+import ru.otus.hw.exceptions.ChangeRelayException;
+import ru.otus.hw.models.Author;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.repositories.JdbcBookChangeRepository;
+import ru.otus.hw.repositories.JdbcBookRepository;
+import ru.otus.hw.services.BookChangeServiceImpl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DisplayName("Журнал изменений книг и его ретранслятор ")
+@JdbcTest
+@Import({JdbcBookRepository.class, JdbcBookChangeRepository.class})
+class OutboxRelayTest {
+    private static final Duration GAP_TIMEOUT = Duration.ofMillis(300);
+
+    @Autowired
+    private JdbcBookRepository bookRepository;
+
+    @Autowired
+    private JdbcBookChangeRepository changeRepository;
+
+    @Autowired
+    private NamedParameterJdbcOperations jdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final OutboxProperties properties = new OutboxProperties();
+
+    private BookChangeServiceImpl changeService;
+
+    private long startSeq;
+
+    @BeforeEach
+    void setUp() {
+        // Откаченные транзакции других тестов оставляют пропуски seq, здесь их не ждем
+        properties.setGapTimeout(Duration.ZERO);
+        changeService = new BookChangeServiceImpl(changeRepository, properties);
+        Long maxSeq = jdbc.queryForObject("select coalesce(max(seq), 0) from book_changes",
+                new MapSqlParameterSource(), Long.class);
+        startSeq = maxSeq == null ? 0 : maxSeq;
+    }
+
+    @DisplayName("должен записывать сохранения и удаления книг в журнал в порядке изменений")
+    @Test
+    void shouldLogSavedAndDeletedBooks() {
+        var insertedBook = bookRepository.save(newBook());
+        var updatedBook = bookRepository.findById(2).orElseThrow();
+        updatedBook.setTitle("BookTitle_2_2");
+        bookRepository.save(updatedBook);
+        bookRepository.deleteById(3);
+        bookRepository.deleteAllByIds(Set.of(1L, 100L));
+
+        assertThat(changeService.findSince(startSeq, 10))
+                .extracting(BookChange::bookId, BookChange::type, BookChange::bookVersion)
+                .containsExactly(
+                        tuple(insertedBook.getId(), BookChangeType.SAVED, 0L),
+                        tuple(2L, BookChangeType.SAVED, 1L),
+                        tuple(3L, BookChangeType.DELETED, 0L),
+                        tuple(1L, BookChangeType.DELETED, 0L));
+    }
+
+    @DisplayName("должен останавливаться перед свежим пропуском seq и пропускать старый")
+    @Test
+    void shouldWaitForFreshGapOnly() throws InterruptedException {
+        bookRepository.save(newBook());
+        long lastSeq = changeService.findSince(startSeq, 10).get(0).seq();
+        insertChange(lastSeq + 2, Instant.now());
+        properties.setGapTimeout(GAP_TIMEOUT);
+
+        assertThat(changeService.findSince(startSeq, 10)).hasSize(1);
+
+        Thread.sleep(GAP_TIMEOUT.multipliedBy(2).toMillis());
+        assertThat(changeService.findSince(startSeq, 10)).extracting(BookChange::seq)
+                .containsExactly(lastSeq, lastSeq + 2);
+    }
+
+    @DisplayName("должен ждать транзакцию, открытую дольше срока ожидания пропуска")
+    @Test
+    void shouldWaitForLongWriterTransaction() throws Exception {
+        // Первая запись фиксирует время начала транзакции теста, от него H2 берет changed_at всех ее записей
+        bookRepository.save(newBook());
+        long firstSeq = changeService.findSince(startSeq, 10).get(0).seq();
+        properties.setGapTimeout(GAP_TIMEOUT);
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        var writer = Executors.newSingleThreadExecutor();
+        var seqTaken = new CountDownLatch(1);
+        var commit = new CountDownLatch(1);
+        try {
+            // Долгая транзакция получает seq и долго не фиксируется
+            Future<Book> writerBook = writer.submit(() -> transactionTemplate.execute(status -> {
+                var book = bookRepository.save(newBook());
+                seqTaken.countDown();
+                await(commit);
+                return book;
+            }));
+            assertThat(seqTaken.await(10, TimeUnit.SECONDS)).isTrue();
+            Thread.sleep(GAP_TIMEOUT.multipliedBy(2).toMillis());
+            // Запись транзакции теста идет после пропуска, и ее changed_at старше срока ожидания
+            bookRepository.save(newBook());
+            List<BookChange> waiting = changeService.findSince(firstSeq, 10);
+
+            commit.countDown();
+            long writerBookId = writerBook.get(10, TimeUnit.SECONDS).getId();
+            try {
+                assertThat(waiting).isEmpty();
+                assertThat(changeService.findSince(firstSeq, 10)).extracting(BookChange::bookId)
+                        .hasSize(2).startsWith(writerBookId);
+            } finally {
+                writer.submit(() -> transactionTemplate.executeWithoutResult(status ->
+                        bookRepository.deleteById(writerBookId))).get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            commit.countDown();
+            writer.shutdown();
+        }
+    }
+
+    @DisplayName("должен повторять пачку, которую не принял приемник, без потерь и повторов")
+    @Test
+    void shouldRetryRejectedBatch() {
+        for (int i = 0; i < 4; i++) {
+            bookRepository.save(newBook());
+        }
+        List<Long> loggedSeqs = changeService.findSince(startSeq, 10).stream().map(BookChange::seq).toList();
+        changeRepository.saveRelayPosition(OutboxRelay.RELAY_NAME, startSeq);
+        properties.setBatchSize(2);
+        var sink = new InMemoryChangeSink(3);
+        var relay = new OutboxRelay(changeService, changeRepository, sink, properties);
+
+        assertThatThrownBy(relay::relay).isInstanceOf(ChangeRelayException.class);
+        List<BookChange> received = new ArrayList<>();
+        sink.drainTo(received, 10);
+        assertThat(relay.relay()).isEqualTo(2);
+        sink.drainTo(received, 10);
+
+        assertThat(received).extracting(BookChange::seq).hasSize(4).isEqualTo(loggedSeqs);
+        assertThat(relay.relay()).isZero();
+    }
+
+    @DisplayName("должен дописывать переданные записи в файл по одной JSON-строке")
+    @Test
+    void shouldAppendChangesToFile(@TempDir Path dir) throws IOException {
+        changeRepository.saveRelayPosition(OutboxRelay.RELAY_NAME, startSeq);
+        var objectMapper = new ObjectMapper().findAndRegisterModules();
+        var file = dir.resolve("changes/book-changes.jsonl");
+        try (var sink = new FileChangeSink(file, objectMapper)) {
+            var relay = new OutboxRelay(changeService, changeRepository, sink, properties);
+            bookRepository.save(newBook());
+            relay.relay();
+            bookRepository.deleteById(1);
+            relay.relay();
+        }
+
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines.get(1), BookChange.class))
+                .isEqualTo(changeService.findSince(startSeq, 10).get(1))
+                .extracting(BookChange::bookId, BookChange::type)
+                .containsExactly(1L, BookChangeType.DELETED);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void insertChange(long seq, Instant changedAt) {
+        jdbc.update("insert into book_changes (seq, book_id, change_type, book_version, changed_at) " +
+                "values (:seq, 1, 'SAVED', 1, :changedAt)", new MapSqlParameterSource()
+                .addValue("seq", seq)
+                .addValue("changedAt", Timestamp.from(changedAt)));
+    }
+
+    private static Book newBook() {
+        return new Book(0L, "New book", new Author(1L, "Author_1"), List.of(new Genre(1L, "Genre_1")));
+    }
+}
@@ -0,0 +1,102 @@
+package ru.otus.hw.rendering;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jline.terminal.impl.DumbTerminal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.otus.hw.converters.AuthorConverter;
+import ru.otus.hw.converters.BookConverter;
+import ru.otus.hw.converters.GenreConverter;
+import ru.otus.hw.models.Author;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Вывод результатов команд в терминал ")
+class TerminalRendererTest {
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final BookConverter bookConverter = new BookConverter(new AuthorConverter(), new GenreConverter());
+
+    private TerminalRenderer renderer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var terminal = new DumbTerminal("test", "dumb", InputStream.nullInputStream(), output,
+                StandardCharsets.UTF_8);
+        renderer = new TerminalRenderer(terminal, objectMapper);
+    }
+
+    @DisplayName("в формате plain должен выводить то же, что прежняя склейка строк")
+    @Test
+    void shouldRenderPlainLikeJoinedStrings() {
+        var books = books(3);
+
+        render(OutputFormat.PLAIN, books);
+
+        assertThat(output()).isEqualTo(books.stream()
+                .map(bookConverter::bookToString)
+                .collect(Collectors.joining("," + System.lineSeparator())) + System.lineSeparator());
+    }
+
+    @DisplayName("в формате table должен выравнивать колонки и обрезать длинные значения")
+    @Test
+    void shouldRenderTableWithFixedWidthColumns() {
+        var books = List.of(new Book(1L, "Long".repeat(20), new Author(1L, "Author_1"),
+                List.of(new Genre(1L, "Genre_1"), new Genre(2L, "Genre_2"))));
+
+        long rows = render(OutputFormat.TABLE, books);
+
+        assertThat(rows).isEqualTo(1);
+        assertThat(output().lines()).containsExactly(
+                "Id       | Title                                    | Author                       | Genres",
+                "---------+------------------------------------------+------------------------------+-------",
+                "1        | " + "Long".repeat(9) + "Lon… | Author_1                     | Genre_1, Genre_2",
+                "(1 row)");
+    }
+
+    @DisplayName("в формате json должен выводить один массив со всеми строками")
+    @Test
+    void shouldRenderJsonArray() throws IOException {
+        var books = books(TerminalRenderer.FLUSH_EVERY_ROWS + 10);
+
+        render(OutputFormat.JSON, books);
+
+        JsonNode array = objectMapper.readTree(output());
+        assertThat(array.isArray()).isTrue();
+        assertThat(array).hasSize(books.size());
+        assertThat(array.get(5).get("title").asText()).isEqualTo("BookTitle_6");
+        assertThat(array.get(5).get("genres").get(0).get("name").asText()).isEqualTo("Genre_6");
+    }
+
+    private long render(OutputFormat format, List<Book> books) {
+        try (RowWriter<Book> rows = renderer.open(format, bookConverter.bookLayout())) {
+            books.forEach(rows::write);
+            return rows.rows();
+        }
+    }
+
+    private String output() {
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private static List<Book> books(int count) {
+        return LongStream.rangeClosed(1, count)
+                .mapToObj(id -> new Book(id, "BookTitle_" + id, new Author(id % 3 + 1, "Author_" + (id % 3 + 1)),
+                        List.of(new Genre(id, "Genre_" + id))))
+                .toList();
+    }
+}
@@ -0,0 +1,74 @@
+package ru.otus.hw.repositories;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import ru.otus.hw.models.Book;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Репозиторий на основе Jdbc для работы с книгами на больших объемах ")
+@JdbcTest
+@Import(JdbcBookRepository.class)
+class JdbcBookRepositoryScalingTest {
+    private static final int GENRES_PER_BOOK = 2;
+
+    private static final int[] RELATION_COUNTS = {1_000, 100_000, 1_000_000};
+
+    // При квадратичной сложности рост в 10 раз дал бы замедление примерно в 100 раз
+    private static final long MAX_SLOWDOWN_PER_10X = 40;
+
+    private static final int INITIAL_BOOKS_COUNT = 3;
+
+    @Autowired
+    private JdbcBookRepository repositoryJdbc;
+
+    @Autowired
+    private NamedParameterJdbcOperations jdbc;
+
+    @DisplayName("должен загружать все книги за время, линейное по числу связей с жанрами")
+    @Test
+    void shouldLoadAllBooksInLinearTime() {
+        Map<Integer, Long> elapsedByRelations = new LinkedHashMap<>();
+        int booksCount = INITIAL_BOOKS_COUNT;
+        for (int relations : RELATION_COUNTS) {
+            int targetBooks = relations / GENRES_PER_BOOK;
+            addBooks(booksCount + 1, targetBooks);
+            booksCount = targetBooks;
+
+            long start = System.nanoTime();
+            List<Book> books = repositoryJdbc.findAll();
+            elapsedByRelations.put(relations, System.nanoTime() - start);
+
+            assertThat(books).hasSize(targetBooks);
+            assertThat(books).allMatch(book -> book.getGenres().size() == GENRES_PER_BOOK);
+            assertThat(books.get(targetBooks - 1).getId()).isEqualTo(targetBooks);
+        }
+        long middle = elapsedByRelations.get(RELATION_COUNTS[1]);
+        long largest = elapsedByRelations.get(RELATION_COUNTS[2]);
+        assertThat(largest).as(() -> "findAll elapsed, ms: " + elapsedByRelations.entrySet().stream()
+                        .map(e -> e.getKey() + "=" + e.getValue() / 1_000_000)
+                        .toList())
+                .isLessThan(middle * MAX_SLOWDOWN_PER_10X);
+    }
+
+    private void addBooks(int fromId, int toId) {
+        var params = new MapSqlParameterSource()
+                .addValue("fromId", fromId)
+                .addValue("toId", toId);
+        jdbc.update("insert into books(id, title, author_id) " +
+                "select x, 'BookTitle_' || x, mod(x, 3) + 1 from system_range(:fromId, :toId)", params);
+        jdbc.update("insert into books_genres(book_id, genre_id) " +
+                "select x, mod(x, 3) * 2 + 1 from system_range(:fromId, :toId)", params);
+        jdbc.update("insert into books_genres(book_id, genre_id) " +
+                "select x, mod(x, 3) * 2 + 2 from system_range(:fromId, :toId)", params);
+    }
+}
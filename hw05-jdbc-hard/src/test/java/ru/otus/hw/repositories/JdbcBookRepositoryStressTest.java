@@ -0,0 +1,383 @@
+package ru.otus.hw.repositories;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.otus.hw.exceptions.EntityNotFoundException;
+import ru.otus.hw.exceptions.OptimisticLockingConflictException;
+import ru.otus.hw.models.Author;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Нагрузочная проверка репозитория книг: потоки вперемешку вставляют, меняют, читают и удаляют книги,
+ * каждая запись идет в своей транзакции, как из сервиса. Каждое сохранение пишет целое поколение книги:
+ * номер в названии однозначно задает автора и жанры, поэтому книга, у которой они не сходятся,
+ * записана или прочитана наполовину. Длительность и число потоков меняются свойствами
+ * {@code -Dstress.seconds=60 -Dstress.threads=16}, по умолчанию прогон короткий.
+ */
+@DisplayName("Репозиторий на основе Jdbc для работы с книгами под конкурентной нагрузкой ")
+@JdbcTest
+@Import(JdbcBookRepository.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JdbcBookRepositoryStressTest {
+    private static final int THREADS = Integer.getInteger("stress.threads", 8);
+
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("stress.seconds", 3));
+
+    private static final int SHARED_BOOKS = 16;
+
+    private static final String TITLE_PREFIX = "Stress_";
+
+    private static final int AUTHORS_COUNT = 3;
+
+    private static final int GENRES_COUNT = 6;
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private static final String ORPHAN_RELATIONS_SQL = "select count(*) from books_genres " +
+            "left join books on books.id = books_genres.book_id where books.id is null";
+
+    private static final String DUPLICATED_RELATIONS_SQL = "select count(*) from (select book_id, genre_id " +
+            "from books_genres group by book_id, genre_id having count(*) > 1)";
+
+    private static final String COUNT_CHANGES_SQL =
+            "select count(*) from book_changes where seq > :afterSeq and change_type = :type";
+
+    private static final String MAX_CHANGE_SEQ_SQL = "select coalesce(max(seq), 0) from book_changes";
+
+    @Autowired
+    private JdbcBookRepository repository;
+
+    @Autowired
+    private NamedParameterJdbcOperations jdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicLong generations = new AtomicLong();
+
+    private final Map<Long, AtomicInteger> acceptedUpdates = new ConcurrentHashMap<>();
+
+    private final Queue<Long> insertedIds = new ConcurrentLinkedQueue<>();
+
+    private final Map<Operation, Map<Outcome, LongAdder>> outcomes = new EnumMap<>(Operation.class);
+
+    private final List<String> inconsistentReads = new CopyOnWriteArrayList<>();
+
+    private final List<String> failures = new CopyOnWriteArrayList<>();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private List<Long> sharedIds;
+
+    private long changesBefore;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        for (Operation operation : Operation.values()) {
+            Map<Outcome, LongAdder> byOutcome = new EnumMap<>(Outcome.class);
+            for (Outcome outcome : Outcome.values()) {
+                byOutcome.put(outcome, new LongAdder());
+            }
+            outcomes.put(operation, byOutcome);
+        }
+        changesBefore = jdbc.queryForObject(MAX_CHANGE_SEQ_SQL, Map.of(), Long.class);
+        sharedIds = new ArrayList<>();
+        for (int i = 0; i < SHARED_BOOKS; i++) {
+            long id = insertBook();
+            sharedIds.add(id);
+            acceptedUpdates.put(id, new AtomicInteger());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("delete from books where title like :prefix", Map.of("prefix", TITLE_PREFIX + "%"));
+        jdbc.update("delete from book_changes where seq > :afterSeq", Map.of("afterSeq", changesBefore));
+        registry.close();
+    }
+
+    @DisplayName("должен сохранять целостность книг и связей с жанрами при смешанной нагрузке из многих потоков")
+    @Test
+    void shouldKeepBooksConsistentUnderMixedLoad() throws Exception {
+        long elapsedNanos = runMixedLoad();
+
+        assertThat(failures).as(() -> report(elapsedNanos)).isEmpty();
+        assertThat(inconsistentReads).isEmpty();
+        assertThat(jdbc.queryForObject(ORPHAN_RELATIONS_SQL, Map.of(), Long.class)).isZero();
+        assertThat(jdbc.queryForObject(DUPLICATED_RELATIONS_SQL, Map.of(), Long.class)).isZero();
+
+        List<Book> books = repository.findAll().stream()
+                .filter(book -> book.getTitle().startsWith(TITLE_PREFIX))
+                .toList();
+        assertThat(books).allSatisfy(book -> assertThat(inconsistency(book)).isNull());
+        assertThat(books).filteredOn(book -> sharedIds.contains(book.getId()))
+                .hasSize(SHARED_BOOKS)
+                .allSatisfy(book -> assertThat(book.getVersion())
+                        .isEqualTo(acceptedUpdates.get(book.getId()).get()));
+
+        // Запись журнала изменений фиксируется в той же транзакции, что и сама книга
+        assertThat(countChanges("SAVED")).isEqualTo(SHARED_BOOKS + succeeded(Operation.INSERT)
+                + succeeded(Operation.UPDATE));
+        assertThat(countChanges("DELETED")).isEqualTo(succeeded(Operation.DELETE));
+    }
+
+    private long runMixedLoad() throws Exception {
+        var start = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        long startNanos;
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long deadline = System.nanoTime() + DURATION.toNanos();
+                    while (System.nanoTime() < deadline) {
+                        execute(nextOperation());
+                    }
+                    return null;
+                }));
+            }
+            startNanos = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(DURATION.toSeconds() + 60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return System.nanoTime() - startNanos;
+    }
+
+    // Доли операций: чтения преобладают, вставки и удаления уравновешены, чтобы каталог не рос
+    private static Operation nextOperation() {
+        int dice = ThreadLocalRandom.current().nextInt(100);
+        if (dice < 40) {
+            return Operation.FIND_BY_ID;
+        }
+        if (dice < 50) {
+            return Operation.FIND_ALL;
+        }
+        if (dice < 75) {
+            return Operation.UPDATE;
+        }
+        if (dice < 88) {
+            return Operation.INSERT;
+        }
+        return Operation.DELETE;
+    }
+
+    private void execute(Operation operation) {
+        long start = System.nanoTime();
+        Outcome outcome;
+        try {
+            outcome = switch (operation) {
+                case FIND_BY_ID -> findById();
+                case FIND_ALL -> findAll();
+                case UPDATE -> update();
+                case INSERT -> insert();
+                case DELETE -> delete();
+            };
+        } catch (OptimisticLockingConflictException e) {
+            outcome = Outcome.CONFLICT;
+        } catch (EntityNotFoundException e) {
+            outcome = Outcome.NOT_FOUND;
+        } catch (RuntimeException e) {
+            failures.add(operation + ": " + e);
+            outcome = Outcome.FAILED;
+        }
+        timer(operation).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        outcomes.get(operation).get(outcome).increment();
+    }
+
+    private Outcome findById() {
+        return repository.findById(randomBookId())
+                .map(book -> {
+                    checkRead(book);
+                    return Outcome.OK;
+                })
+                .orElse(Outcome.NOT_FOUND);
+    }
+
+    private Outcome findAll() {
+        List<Book> books = repository.findAll();
+        Set<Long> ids = new HashSet<>();
+        for (Book book : books) {
+            if (!ids.add(book.getId())) {
+                inconsistentReads.add("findAll returned book %d twice".formatted(book.getId()));
+            }
+            checkRead(book);
+        }
+        return Outcome.OK;
+    }
+
+    // Чтение и изменение в одной транзакции: изменение устаревшей версии отклоняется репозиторием
+    private Outcome update() {
+        long id = randomBookId();
+        Outcome outcome = transactionTemplate.execute(status -> {
+            var current = repository.findById(id);
+            if (current.isEmpty()) {
+                return Outcome.NOT_FOUND;
+            }
+            repository.save(newGeneration(id, current.get().getVersion()));
+            return Outcome.OK;
+        });
+        AtomicInteger accepted = acceptedUpdates.get(id);
+        if (outcome == Outcome.OK && accepted != null) {
+            accepted.incrementAndGet();
+        }
+        return outcome;
+    }
+
+    private Outcome insert() {
+        insertedIds.add(insertBook());
+        return Outcome.OK;
+    }
+
+    private Outcome delete() {
+        Long id = insertedIds.poll();
+        if (id == null) {
+            return Outcome.NOT_FOUND;
+        }
+        transactionTemplate.executeWithoutResult(status -> repository.deleteById(id));
+        return Outcome.OK;
+    }
+
+    private long insertBook() {
+        //noinspection DataFlowIssue
+        return transactionTemplate.execute(status -> repository.save(newGeneration(0L, 0))).getId();
+    }
+
+    // Изменения достаются и общим книгам, и только что вставленным, которые могут удалить в любой момент
+    private long randomBookId() {
+        var random = ThreadLocalRandom.current();
+        Long inserted = random.nextInt(4) == 0 ? insertedIds.peek() : null;
+        return inserted != null ? inserted : sharedIds.get(random.nextInt(sharedIds.size()));
+    }
+
+    private Book newGeneration(long id, long version) {
+        long generation = generations.incrementAndGet();
+        var book = new Book(id, TITLE_PREFIX + generation, new Author(authorOf(generation), null),
+                genresOf(generation).stream().map(genreId -> new Genre(genreId, null)).toList());
+        book.setVersion(version);
+        return book;
+    }
+
+    private void checkRead(Book book) {
+        if (book.getTitle().startsWith(TITLE_PREFIX)) {
+            String inconsistency = inconsistency(book);
+            if (inconsistency != null) {
+                inconsistentReads.add(inconsistency);
+            }
+        }
+    }
+
+    // null, если автор и жанры книги совпадают с поколением из ее названия
+    private static String inconsistency(Book book) {
+        long generation = Long.parseLong(book.getTitle().substring(TITLE_PREFIX.length()));
+        Set<Long> genreIds = new HashSet<>();
+        book.getGenres().forEach(genre -> genreIds.add(genre.getId()));
+        if (book.getAuthor().getId() != authorOf(generation) || genreIds.size() != book.getGenres().size()
+                || !genreIds.equals(genresOf(generation))) {
+            return "Book %d of generation %d has author %d and genres %s".formatted(book.getId(), generation,
+                    book.getAuthor().getId(), genreIds);
+        }
+        return null;
+    }
+
+    private static long authorOf(long generation) {
+        return generation % AUTHORS_COUNT + 1;
+    }
+
+    // Два разных жанра, набор меняется от поколения к поколению, поэтому изменения трогают books_genres
+    private static Set<Long> genresOf(long generation) {
+        return Set.of(generation % GENRES_COUNT + 1, (generation + 2) % GENRES_COUNT + 1);
+    }
+
+    private long countChanges(String type) {
+        return jdbc.queryForObject(COUNT_CHANGES_SQL, Map.of("afterSeq", changesBefore, "type", type), Long.class);
+    }
+
+    private long succeeded(Operation operation) {
+        return outcomes.get(operation).get(Outcome.OK).sum();
+    }
+
+    private Timer timer(Operation operation) {
+        return Timer.builder("stress.repository")
+                .tag("operation", operation.name())
+                .publishPercentiles(PERCENTILES)
+                .register(registry);
+    }
+
+    private String report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        var report = new StringBuilder("Stress of JdbcBookRepository: %d threads, %.1f s%n"
+                .formatted(THREADS, seconds));
+        report.append("%-10s %8s %9s %8s %8s %8s %8s %9s %9s%n".formatted("operation", "count", "ops/s",
+                "p50 ms", "p95 ms", "p99 ms", "max ms", "conflicts", "not found"));
+        for (Operation operation : Operation.values()) {
+            var snapshot = timer(operation).takeSnapshot();
+            report.append("%-10s %8d %9.0f".formatted(operation, snapshot.count(), snapshot.count() / seconds));
+            for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+                report.append(" %8.2f".formatted(percentile.value(TimeUnit.MILLISECONDS)));
+            }
+            report.append(" %8.2f %9d %9d%n".formatted(snapshot.max(TimeUnit.MILLISECONDS),
+                    outcomes.get(operation).get(Outcome.CONFLICT).sum(),
+                    outcomes.get(operation).get(Outcome.NOT_FOUND).sum()));
+        }
+        return report.toString();
+    }
+
+    private enum Operation {
+        FIND_BY_ID,
+        FIND_ALL,
+        UPDATE,
+        INSERT,
+        DELETE
+    }
+
+    private enum Outcome {
+        OK,
+        CONFLICT,
+        NOT_FOUND,
+        FAILED
+    }
+}
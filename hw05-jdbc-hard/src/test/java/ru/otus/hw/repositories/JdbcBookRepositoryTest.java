@@ -8,14 +8,24 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import ru.otus.hw.dto.BookSummary;
+import ru.otus.hw.dto.FacetCount;
+import ru.otus.hw.dto.GenreMatch;
+import ru.otus.hw.exceptions.EntityNotFoundException;
+import ru.otus.hw.exceptions.OptimisticLockingConflictException;
 import ru.otus.hw.models.Author;
 import ru.otus.hw.models.Book;
 import ru.otus.hw.models.Genre;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @DisplayName("Репозиторий на основе Jdbc для работы с книгами ")
 @JdbcTest
@@ -25,6 +35,9 @@ class JdbcBookRepositoryTest {
     @Autowired
     private JdbcBookRepository repositoryJdbc;
 
+    @Autowired
+    private NamedParameterJdbcOperations jdbc;
+
     private List<Author> dbAuthors;
 
     private List<Genre> dbGenres;
@@ -48,6 +61,17 @@ class JdbcBookRepositoryTest {
                 .isEqualTo(expectedBook);
     }
 
+    @DisplayName("должен загружать по id книгу без жанров")
+    @Test
+    void shouldReturnBookWithoutGenresById() {
+        jdbc.update("delete from books_genres where book_id = 1", Map.of());
+
+        assertThat(repositoryJdbc.findById(1L)).isPresent()
+                .get()
+                .isEqualTo(new Book(1L, "BookTitle_1", dbAuthors.get(0), List.of()));
+        assertThat(repositoryJdbc.findById(100L)).isEmpty();
+    }
+
     @DisplayName("должен загружать список всех книг")
     @Test
     void shouldReturnCorrectBooksList() {
@@ -58,6 +82,80 @@ class JdbcBookRepositoryTest {
         actualBooks.forEach(System.out::println);
     }
 
+    @DisplayName("должен загружать страницу книг после заданного id")
+    @Test
+    void shouldReturnBooksPageAfterId() {
+        assertThat(repositoryJdbc.findPage(0, 2)).containsExactlyElementsOf(dbBooks.subList(0, 2));
+        assertThat(repositoryJdbc.findPage(2, 2)).containsExactlyElementsOf(dbBooks.subList(2, 3));
+        assertThat(repositoryJdbc.findPage(3, 2)).isEmpty();
+    }
+
+    @DisplayName("должен загружать страницу кратких описаний книг")
+    @Test
+    void shouldReturnSummaryPage() {
+        assertThat(repositoryJdbc.findSummaryPage(1, 10)).containsExactly(
+                new BookSummary(2, "BookTitle_2", "Author_2"),
+                new BookSummary(3, "BookTitle_3", "Author_3"));
+    }
+
+    @DisplayName("должен загружать жанры страницы книг одним запросом при первом обращении")
+    @Test
+    void shouldLoadPageGenresLazilyInOneBatch() {
+        var books = repositoryJdbc.findPageWithLazyGenres(0, 10);
+        assertThat(books).extracting(Book::getGenres)
+                .allSatisfy(genres -> assertThat(((LazyGenreList) genres).isLoaded()).isFalse());
+
+        assertThat(books.get(0).getGenres()).containsExactlyElementsOf(dbBooks.get(0).getGenres());
+        jdbc.update("delete from books_genres", Map.of());
+
+        assertThat(books).containsExactlyElementsOf(dbBooks);
+    }
+
+    @DisplayName("должен загружать страницу книг автора")
+    @Test
+    void shouldReturnBooksPageByAuthor() {
+        jdbc.update("update books set author_id = 1 where id = 3", Map.of());
+        var book3 = new Book(3L, "BookTitle_3", dbAuthors.get(0), dbBooks.get(2).getGenres());
+
+        assertThat(repositoryJdbc.findByAuthor(1, 0, 10)).containsExactly(dbBooks.get(0), book3);
+        assertThat(repositoryJdbc.findByAuthor(1, 1, 10)).containsExactly(book3);
+        assertThat(repositoryJdbc.findByAuthor(1, 0, 1)).containsExactly(dbBooks.get(0));
+        assertThat(repositoryJdbc.findByAuthor(2, 2, 10)).isEmpty();
+    }
+
+    @DisplayName("должен загружать страницу книг с любым или со всеми заданными жанрами")
+    @Test
+    void shouldReturnBooksPageByGenres() {
+        assertThat(repositoryJdbc.findByGenres(Set.of(1L, 3L), GenreMatch.ANY, 0, 10))
+                .containsExactlyElementsOf(dbBooks.subList(0, 2));
+        assertThat(repositoryJdbc.findByGenres(Set.of(1L, 3L), GenreMatch.ANY, 1, 10))
+                .containsExactly(dbBooks.get(1));
+        assertThat(repositoryJdbc.findByGenres(Set.of(1L, 3L), GenreMatch.ALL, 0, 10)).isEmpty();
+        assertThat(repositoryJdbc.findByGenres(Set.of(3L, 4L), GenreMatch.ALL, 0, 10))
+                .containsExactly(dbBooks.get(1));
+    }
+
+    @DisplayName("должен считать книги по авторам и жанрам")
+    @Test
+    void shouldCountBooksPerAuthorAndGenre() {
+        jdbc.update("update books set author_id = 1 where id = 3", Map.of());
+        jdbc.update("insert into books_genres(book_id, genre_id) values (2, 1)", Map.of());
+
+        var facets = repositoryJdbc.findFacets();
+
+        assertThat(facets.authors()).containsExactly(
+                new FacetCount(1, "Author_1", 2), new FacetCount(2, "Author_2", 1), new FacetCount(3, "Author_3", 0));
+        assertThat(facets.genres()).extracting(FacetCount::booksCount).containsExactly(2L, 1L, 1L, 1L, 1L, 1L);
+    }
+
+    @DisplayName("должен передавать все книги потоком по одной")
+    @Test
+    void shouldStreamAllBooks() {
+        List<Book> actualBooks = new ArrayList<>();
+        repositoryJdbc.forEach(actualBooks::add);
+        assertThat(actualBooks).containsExactlyElementsOf(dbBooks);
+    }
+
     @DisplayName("должен сохранять новую книгу")
     @Test
     void shouldSaveNewBook() {
@@ -74,6 +172,25 @@ class JdbcBookRepositoryTest {
                 .isEqualTo(returnedBook);
     }
 
+    @DisplayName("должен сохранять пачку новых книг с полученными из БД id")
+    @Test
+    void shouldInsertAllNewBooks() {
+        var newBooks = IntStream.range(0, 2500).boxed()
+                .map(i -> new Book(0L, "BatchBook_" + i, dbAuthors.get(i % 3),
+                        List.of(dbGenres.get(i % 6))))
+                .toList();
+
+        var returnedBooks = repositoryJdbc.insertAll(newBooks);
+
+        assertThat(returnedBooks).hasSize(2500)
+                .allMatch(book -> book.getId() > 3)
+                .extracting(Book::getId).doesNotHaveDuplicates();
+        assertThat(repositoryJdbc.findById(returnedBooks.get(2499).getId()))
+                .isPresent()
+                .get()
+                .isEqualTo(returnedBooks.get(2499));
+    }
+
     @DisplayName("должен сохранять измененную книгу")
     @Test
     void shouldSaveUpdatedBook() {
@@ -97,6 +214,60 @@ class JdbcBookRepositoryTest {
                 .isEqualTo(returnedBook);
     }
 
+    @DisplayName("должен менять только отличающиеся жанры измененной книги")
+    @Test
+    void shouldSaveUpdatedBookWithOverlappingGenres() {
+        var expectedBook = new Book(1L, "BookTitle_1", dbAuthors.get(0),
+                List.of(dbGenres.get(1), dbGenres.get(2), dbGenres.get(3)));
+
+        repositoryJdbc.save(expectedBook);
+
+        assertThat(repositoryJdbc.findById(1L))
+                .isPresent()
+                .get()
+                .isEqualTo(expectedBook);
+    }
+
+    @DisplayName("должен отклонять изменение устаревшей версии книги")
+    @Test
+    void shouldRejectStaleBookVersion() {
+        var first = repositoryJdbc.findById(1L).orElseThrow();
+        var second = repositoryJdbc.findById(1L).orElseThrow();
+
+        first.setTitle("BookTitle_first");
+        assertThat(repositoryJdbc.save(first).getVersion()).isEqualTo(1);
+
+        second.setTitle("BookTitle_second");
+        assertThatThrownBy(() -> repositoryJdbc.save(second))
+                .isInstanceOf(OptimisticLockingConflictException.class);
+        assertThat(repositoryJdbc.findById(1L)).isPresent()
+                .get()
+                .isEqualTo(first);
+
+        assertThatThrownBy(() -> repositoryJdbc.save(new Book(100L, "BookTitle_100", dbAuthors.get(0), List.of())))
+                .isInstanceOf(EntityNotFoundException.class);
+    }
+
+    @DisplayName("должен сохранять пачку измененных книг, пропуская устаревшие и отсутствующие")
+    @Test
+    void shouldUpdateAllBooksSkippingStaleAndMissing() {
+        var first = new Book(1L, "BookTitle_1_edited", dbAuthors.get(1),
+                List.of(dbGenres.get(1), dbGenres.get(5)));
+        var second = new Book(2L, "BookTitle_2_edited", dbAuthors.get(1), List.of(dbGenres.get(2)));
+        var stale = new Book(3L, "BookTitle_3_stale", dbAuthors.get(0), List.of(dbGenres.get(0)), 5);
+        var missing = new Book(100L, "BookTitle_100", dbAuthors.get(0), List.of(dbGenres.get(0)));
+
+        var updatedBooks = repositoryJdbc.updateAll(List.of(first, second, stale, missing));
+
+        assertThat(updatedBooks).containsExactly(first, second)
+                .allMatch(book -> book.getVersion() == 1);
+        assertThat(repositoryJdbc.findAllByIds(List.of(1L, 2L, 3L)))
+                .containsExactly(first, second, dbBooks.get(2));
+        assertThat(jdbc.queryForList("select book_id from book_changes where change_type = 'SAVED' " +
+                "and book_id in (1, 2, 3) and book_version = 1 order by book_id", Map.of(), Long.class))
+                .containsExactly(1L, 2L);
+    }
+
     @DisplayName("должен удалять книгу по id ")
     @Test
     void shouldDeleteBook() {
@@ -105,6 +276,17 @@ class JdbcBookRepositoryTest {
         assertThat(repositoryJdbc.findById(1L)).isEmpty();
     }
 
+    @DisplayName("должен удалять книги по набору id вместе со связями с жанрами")
+    @Test
+    void shouldDeleteBooksByIds() {
+        assertThat(repositoryJdbc.deleteAllByIds(List.of(3L, 1L, 100L, 1L))).isEqualTo(2);
+
+        assertThat(repositoryJdbc.findAll()).containsExactly(dbBooks.get(1));
+        assertThat(jdbc.queryForList("select distinct book_id from books_genres", Map.of(), Long.class))
+                .containsExactly(2L);
+        assertThat(repositoryJdbc.deleteAllByIds(List.of())).isZero();
+    }
+
     private static List<Author> getDbAuthors() {
         return IntStream.range(1, 4).boxed()
                 .map(id -> new Author(id.longValue(), "Author_" + id))
@@ -0,0 +1,159 @@
+package ru.otus.hw.repositories;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+/**
+ * Проверяет планы H2 для всех запросов репозиториев. Полный просмотр таблицы допустим
+ * только там, где он явно указан: выборки всех записей.
+ */
+@DisplayName("Планы запросов репозиториев ")
+@JdbcTest
+class QueryPlanTest {
+    private static final Pattern TABLE_SCAN = Pattern.compile("PUBLIC\\.(\\w+)\\.tableScan");
+
+    private static final List<Long> IDS = List.of(1L, 2L);
+
+    @Autowired
+    private NamedParameterJdbcOperations jdbc;
+
+    @DisplayName("не должны просматривать таблицы целиком без необходимости")
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("namedStatements")
+    void shouldNotScanTablesInNamedStatements(String name, String sql, Map<String, ?> params,
+                                              Set<String> allowedScans) {
+        String plan = jdbc.queryForObject("explain " + sql, params, String.class);
+        assertThat(scannedTables(plan)).as(plan).isSubsetOf(allowedScans);
+    }
+
+    @DisplayName("не должны просматривать таблицы целиком в пакетных запросах")
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("positionalStatements")
+    void shouldNotScanTablesInPositionalStatements(String name, String sql, Object[] args) {
+        String plan = jdbc.getJdbcOperations().queryForObject("explain " + sql, String.class, args);
+        assertThat(scannedTables(plan)).as(plan).isEmpty();
+    }
+
+    @DisplayName("должны иметь индекс для каждого внешнего ключа, чтобы каскадное удаление не просматривало таблицы")
+    @Test
+    void shouldIndexEveryForeignKey() {
+        List<Map<String, Object>> foreignKeys = jdbc.queryForList("""
+                select kcu.table_name, kcu.column_name
+                from information_schema.referential_constraints rc
+                join information_schema.key_column_usage kcu on kcu.constraint_name = rc.constraint_name
+                where kcu.table_schema = 'PUBLIC'
+                """, Map.of());
+        Set<String> indexedColumns = new HashSet<>(jdbc.queryForList("""
+                select table_name || '.' || column_name
+                from information_schema.index_columns
+                where table_schema = 'PUBLIC' and ordinal_position = 1
+                """, Map.of(), String.class));
+
+        assertThat(foreignKeys).hasSize(3)
+                .allSatisfy(key -> assertThat(indexedColumns)
+                        .contains(key.get("TABLE_NAME") + "." + key.get("COLUMN_NAME")));
+    }
+
+    private static Set<String> scannedTables(String plan) {
+        Set<String> tables = new HashSet<>();
+        var matcher = TABLE_SCAN.matcher(plan);
+        while (matcher.find()) {
+            tables.add(matcher.group(1));
+        }
+        return tables;
+    }
+
+    private static Stream<Arguments> namedStatements() {
+        return Stream.of(
+                arguments("authors.findAll", JdbcAuthorRepository.FIND_ALL_SQL, Map.of(), Set.of("AUTHORS")),
+                arguments("authors.findById", JdbcAuthorRepository.FIND_BY_ID_SQL, Map.of("id", 1L), Set.of()),
+                arguments("authors.findAllByIds", JdbcAuthorRepository.FIND_ALL_BY_IDS_SQL,
+                        Map.of("ids", IDS), Set.of()),
+                arguments("genres.findAll", JdbcGenreRepository.FIND_ALL_SQL, Map.of(), Set.of("GENRES")),
+                arguments("genres.findAllByIds", JdbcGenreRepository.FIND_ALL_BY_IDS_SQL,
+                        Map.of("ids", IDS), Set.of()),
+                arguments("books.findById", JdbcBookRepository.FIND_BY_ID_SQL, Map.of("id", 1L), Set.of()),
+                arguments("books.findAll", JdbcBookRepository.FIND_ALL_SQL, Map.of(), Set.of("BOOKS")),
+                arguments("books.streamAll", JdbcBookRepository.STREAM_ALL_SQL, Map.of(), Set.of()),
+                arguments("books.findPage", JdbcBookRepository.FIND_PAGE_SQL,
+                        Map.of("afterId", 1L, "limit", 10), Set.of()),
+                arguments("books.findPageWithoutGenres", JdbcBookRepository.FIND_PAGE_WITHOUT_GENRES_SQL,
+                        Map.of("afterId", 1L, "limit", 10), Set.of()),
+                arguments("books.findSummaryPage", JdbcBookRepository.FIND_SUMMARY_PAGE_SQL,
+                        Map.of("afterId", 1L, "limit", 10), Set.of()),
+                arguments("books.findPageGenres", PageGenresLoader.FIND_PAGE_GENRES_SQL,
+                        Map.of("afterId", 1L, "lastId", 10L), Set.of()),
+                arguments("books.findAllByIds", JdbcBookRepository.FIND_ALL_BY_IDS_SQL,
+                        Map.of("ids", IDS), Set.of()),
+                arguments("books.findByAuthor", JdbcBookRepository.FIND_BY_AUTHOR_SQL,
+                        Map.of("authorId", 1L, "afterId", 1L, "limit", 10), Set.of()),
+                arguments("books.findByAnyGenres", JdbcBookRepository.FIND_BY_ANY_GENRES_SQL,
+                        Map.of("genreIds", IDS, "afterId", 1L, "limit", 10), Set.of()),
+                arguments("books.findByAllGenres", JdbcBookRepository.FIND_BY_ALL_GENRES_SQL,
+                        Map.of("genreIds", IDS, "genresCount", IDS.size(), "afterId", 1L, "limit", 10), Set.of()),
+                arguments("books.findFacets", JdbcBookRepository.FIND_FACETS_SQL, Map.of(),
+                        Set.of("AUTHORS", "GENRES")),
+                arguments("snapshot.authors", JdbcCatalogSnapshotRepository.SNAPSHOT_AUTHORS_SQL, Map.of(),
+                        Set.of()),
+                arguments("snapshot.genres", JdbcCatalogSnapshotRepository.SNAPSHOT_GENRES_SQL, Map.of(),
+                        Set.of()),
+                arguments("snapshot.books", JdbcCatalogSnapshotRepository.SNAPSHOT_BOOKS_SQL, Map.of(), Set.of()),
+                arguments("books.insertDeletedChanges", JdbcBookRepository.INSERT_DELETED_CHANGES_SQL,
+                        Map.of("ids", IDS), Set.of()),
+                arguments("changes.findSince", JdbcBookChangeRepository.FIND_SINCE_SQL,
+                        Map.of("afterSeq", 1L, "limit", 10), Set.of()),
+                arguments("changes.findRelayPosition", JdbcBookChangeRepository.FIND_RELAY_POSITION_SQL,
+                        Map.of("relay", "relay"), Set.of()),
+                arguments("changes.saveRelayPosition", JdbcBookChangeRepository.SAVE_RELAY_POSITION_SQL,
+                        Map.of("relay", "relay", "lastSeq", 1L), Set.of()),
+                arguments("books.insert", JdbcBookRepository.INSERT_BOOK_SQL,
+                        Map.of("title", "title", "author_id", 1L), Set.of()),
+                arguments("books.update", JdbcBookRepository.UPDATE_BOOK_SQL,
+                        Map.of("bookTitle", "title", "authorId", 1L, "bookId", 1L, "version", 0L), Set.of()),
+                arguments("books.countById", JdbcBookRepository.COUNT_BY_ID_SQL, Map.of("id", 1L), Set.of()),
+                arguments("books.delete", JdbcBookRepository.DELETE_BOOK_SQL, Map.of("id", 1L), Set.of()),
+                arguments("books.selectGenreIds", JdbcBookRepository.SELECT_GENRE_IDS_SQL,
+                        Map.of("id", 1L), Set.of()),
+                arguments("books.deleteAllByIds", JdbcBookRepository.DELETE_ALL_BY_IDS_SQL,
+                        Map.of("ids", IDS), Set.of()),
+                arguments("books.findExistingIds", JdbcBookRepository.FIND_EXISTING_IDS_SQL,
+                        Map.of("ids", IDS), Set.of()),
+                arguments("books.deleteRemovedGenresRelations",
+                        JdbcBookRepository.DELETE_REMOVED_GENRES_RELATIONS_SQL,
+                        Map.of("id", 1L, "genreIds", IDS), Set.of()),
+                arguments("books.selectGenresRelations", JdbcBookRepository.SELECT_GENRES_RELATIONS_SQL,
+                        Map.of("ids", IDS), Set.of())
+        );
+    }
+
+    private static Stream<Arguments> positionalStatements() {
+        return Stream.of(
+                arguments("books.batchInsert", JdbcBookRepository.BATCH_INSERT_BOOK_SQL,
+                        new Object[]{"title", 1L}),
+                arguments("books.insertGenreRelation", JdbcBookRepository.INSERT_GENRE_RELATION_SQL,
+                        new Object[]{1L, 1L}),
+                arguments("books.insertSavedChange", JdbcBookRepository.INSERT_SAVED_CHANGE_SQL,
+                        new Object[]{1L, 1L}),
+                arguments("books.batchUpdate", JdbcBookRepository.BATCH_UPDATE_BOOK_SQL,
+                        new Object[]{"title", 1L, 1L, 0L}),
+                arguments("books.deleteGenreRelation", JdbcBookRepository.DELETE_GENRE_RELATION_SQL,
+                        new Object[]{1L, 1L})
+        );
+    }
+}
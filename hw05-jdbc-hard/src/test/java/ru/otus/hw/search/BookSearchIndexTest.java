@@ -0,0 +1,96 @@
+package ru.otus.hw.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.otus.hw.events.BooksDeletedEvent;
+import ru.otus.hw.events.BooksSavedEvent;
+import ru.otus.hw.models.Author;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.repositories.BookRepository;
+import ru.otus.hw.repositories.JdbcBookRepository;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("Поисковый индекс по книгам ")
+@JdbcTest
+@Import(JdbcBookRepository.class)
+class BookSearchIndexTest {
+
+    @Autowired
+    private JdbcBookRepository bookRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private BookSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        searchIndex = new BookSearchIndex(bookRepository, transactionManager);
+    }
+
+    @DisplayName("должен находить книги по префиксам слов названия, автора и жанров")
+    @Test
+    void shouldFindBooksByWordPrefixes() {
+        assertThat(searchIndex.search("booktitle", 10)).containsExactly(1L, 2L, 3L);
+        assertThat(searchIndex.search("BookTitle_2", 10)).containsExactly(1L, 2L);
+        assertThat(searchIndex.search("author_3 genre_6", 10)).containsExactly(3L);
+        assertThat(searchIndex.search("author_3 genre_1", 10)).isEmpty();
+        assertThat(searchIndex.search("booktitle", 2)).containsExactly(1L, 2L);
+        assertThat(searchIndex.search("booktitle 1", 10)).containsExactly(1L);
+        assertThat(searchIndex.search(" ,; ", 10)).isEmpty();
+    }
+
+    @DisplayName("должен обновляться по событиям сохранения и удаления книг")
+    @Test
+    void shouldFollowSavedAndDeletedBooks() {
+        assertThat(searchIndex.search("booktitle_1", 10)).containsExactly(1L);
+
+        var renamedBook = new Book(1L, "War and Peace", new Author(1L, "Author_1"),
+                List.of(new Genre(1L, "Genre_1")));
+        searchIndex.onBooksSaved(new BooksSavedEvent(List.of(renamedBook)));
+        assertThat(searchIndex.search("booktitle_1", 10)).isEmpty();
+        assertThat(searchIndex.search("war pea", 10)).containsExactly(1L);
+
+        searchIndex.onBooksDeleted(new BooksDeletedEvent(List.of(1L, 2L)));
+        assertThat(searchIndex.search("booktitle", 10)).containsExactly(3L);
+        assertThat(searchIndex.search("war", 10)).isEmpty();
+    }
+
+    @DisplayName("не должен терять изменения, зафиксированные во время первого построения индекса")
+    @Test
+    void shouldApplyChangesCommittedWhileBuilding() {
+        var repository = mock(BookRepository.class);
+        var index = new BookSearchIndex(repository, mock(PlatformTransactionManager.class));
+        var newBook = new Book(4L, "Concurrent Book", new Author(1L, "Author_1"),
+                List.of(new Genre(1L, "Genre_1")));
+        // Чтение каталога видит состояние до изменений, а события о них приходят из другого потока,
+        // пока построение еще не закончено
+        doAnswer(invocation -> {
+            Consumer<Book> action = invocation.getArgument(0);
+            bookRepository.forEach(action);
+            CompletableFuture.runAsync(() -> {
+                index.onBooksSaved(new BooksSavedEvent(List.of(newBook)));
+                index.onBooksDeleted(new BooksDeletedEvent(List.of(2L)));
+            }).get(5, TimeUnit.SECONDS);
+            return null;
+        }).when(repository).forEach(any());
+
+        assertThat(index.search("booktitle", 10)).containsExactly(1L, 3L);
+        assertThat(index.search("concurrent", 10)).containsExactly(4L);
+    }
+}
@@ -0,0 +1,165 @@
+package ru.otus.hw.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import ru.otus.hw.dto.ExportFormat;
+import ru.otus.hw.exceptions.BookExportException;
+import ru.otus.hw.exceptions.BookImportException;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.repositories.JdbcAuthorRepository;
+import ru.otus.hw.repositories.JdbcBookRepository;
+import ru.otus.hw.repositories.JdbcCatalogSnapshotRepository;
+import ru.otus.hw.repositories.JdbcGenreRepository;
+import ru.otus.hw.search.BookSearchIndex;
+import ru.otus.hw.snapshot.CatalogSnapshotHolder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Сервис выгрузки каталога ")
+@JdbcTest
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({BookExportServiceImpl.class, BookImportServiceImpl.class, BookServiceImpl.class, JdbcBookRepository.class,
+        JdbcAuthorRepository.class, JdbcGenreRepository.class, BookSearchIndex.class,
+        JdbcCatalogSnapshotRepository.class, CatalogSnapshotHolder.class})
+class BookExportServiceImplTest {
+
+    @Autowired
+    private BookExportServiceImpl exportService;
+
+    @Autowired
+    private BookImportServiceImpl importService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private NamedParameterJdbcOperations jdbc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @TempDir
+    private Path dir;
+
+    @DisplayName("должен выгружать книги в csv в формате импорта")
+    @Test
+    void shouldExportCsv() throws IOException {
+        var file = dir.resolve("books.csv");
+
+        var result = exportService.export(file, ExportFormat.CSV, false);
+
+        assertThat(result.rows()).isEqualTo(3);
+        assertThat(result.bytes()).isEqualTo(Files.size(file));
+        assertThat(Files.readAllLines(file)).containsExactly(
+                "title;authorId;genreIds",
+                "BookTitle_1;1;1,2",
+                "BookTitle_2;2;3,4",
+                "BookTitle_3;3;5,6");
+    }
+
+    @DisplayName("должен выгружать в csv название с разделителями, кавычками и переводами строк в формате импорта")
+    @Test
+    void shouldRoundTripHostileTitleThroughCsv() {
+        String hostileTitle = "\"Quoted\"; title;1;1,2\nsecond \"\" line\n;";
+        var hostileBook = bookService.insert(hostileTitle, 2, Set.of(3L, 5L));
+        var file = dir.resolve("books.csv");
+
+        exportService.export(file, ExportFormat.CSV, false);
+        bookService.deleteAllByIds(Set.of(1L, 2L, 3L, hostileBook.getId()));
+        var result = importService.importBooks(file, 2);
+
+        assertThat(result.rows()).isEqualTo(4);
+        assertThat(bookService.findAll()).extracting(Book::getTitle)
+                .containsExactly("BookTitle_1", "BookTitle_2", "BookTitle_3", hostileTitle);
+        assertThat(bookService.findAll().get(3))
+                .matches(book -> book.getAuthor().getId() == 2)
+                .extracting(Book::getGenres).asList().extracting("id").containsExactly(3L, 5L);
+    }
+
+    @DisplayName("должен загружать обратно выгруженный сжатый jsonl")
+    @Test
+    void shouldRoundTripGzippedJsonLines() {
+        var file = dir.resolve("books.jsonl.gz");
+        var expected = bookService.findAll();
+
+        exportService.export(file, ExportFormat.JSONL, true);
+        bookService.deleteAllByIds(Set.of(1L, 2L, 3L));
+        var result = importService.importBooks(file, 2);
+
+        assertThat(result.rows()).isEqualTo(3);
+        assertThat(bookService.findAll()).usingRecursiveFieldByFieldElementComparatorIgnoringFields("id")
+                .containsExactlyElementsOf(expected);
+    }
+
+    @DisplayName("должен сообщать, сколько книг загружено до ошибки в середине файла")
+    @Test
+    void shouldReportImportedRowsOnFailure() throws IOException {
+        var file = dir.resolve("books.csv");
+        Files.write(file, List.of("title;authorId;genreIds", "First;1;1", "Second;2;2", "Third;3;3", "Broken;x;1"));
+        bookService.deleteAllByIds(Set.of(1L, 2L, 3L));
+
+        assertThatThrownBy(() -> importService.importBooks(file, 2))
+                .isInstanceOf(BookImportException.class)
+                .hasMessageContaining("Line 5")
+                .hasMessageContaining("2 books imported");
+        assertThat(bookService.findAll()).extracting(Book::getTitle).containsExactly("First", "Second");
+    }
+
+    @DisplayName("должен отказываться выгружать в csv книгу без автора")
+    @Test
+    void shouldRejectBookWithoutAuthorInCsv() {
+        jdbc.update("update books set author_id = null where id = 2", Map.of());
+
+        assertThatThrownBy(() -> exportService.export(dir.resolve("books.csv"), ExportFormat.CSV, false))
+                .isInstanceOf(BookExportException.class)
+                .hasMessageContaining("id 2");
+    }
+
+    @DisplayName("должен отказываться выгружать в csv книгу без жанров")
+    @Test
+    void shouldRejectBookWithoutGenresInCsv() {
+        jdbc.update("delete from books_genres where book_id = 3", Map.of());
+
+        assertThatThrownBy(() -> exportService.export(dir.resolve("books.csv"), ExportFormat.CSV, false))
+                .isInstanceOf(BookExportException.class)
+                .hasMessageContaining("id 3");
+    }
+
+    @DisplayName("должен выгружать книги целиком в сжатый jsonl")
+    @Test
+    void shouldExportGzippedJsonLines() throws IOException {
+        var file = dir.resolve("books.jsonl.gz");
+
+        var result = exportService.export(file, ExportFormat.JSONL, true);
+
+        List<String> lines;
+        try (var reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            lines = reader.lines().toList();
+        }
+        assertThat(result.rows()).isEqualTo(3);
+        assertThat(lines).hasSize(3);
+        assertThat(objectMapper.readValue(lines.get(1), Book.class))
+                .isEqualTo(bookService.findById(2L).orElseThrow());
+    }
+}
@@ -0,0 +1,97 @@
+package ru.otus.hw.services;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import ru.otus.hw.dto.BookCreateDto;
+import ru.otus.hw.dto.BookUpdateDto;
+import ru.otus.hw.dto.BookUpdateFailure;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.repositories.JdbcAuthorRepository;
+import ru.otus.hw.repositories.JdbcBookRepository;
+import ru.otus.hw.repositories.JdbcCatalogSnapshotRepository;
+import ru.otus.hw.repositories.JdbcGenreRepository;
+import ru.otus.hw.search.BookSearchIndex;
+import ru.otus.hw.snapshot.CatalogSnapshotHolder;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("Сервис книг при пакетном изменении ")
+@JdbcTest
+@Import({BookServiceImpl.class, JdbcBookRepository.class, JdbcAuthorRepository.class,
+        JdbcGenreRepository.class, BookSearchIndex.class, JdbcCatalogSnapshotRepository.class,
+        CatalogSnapshotHolder.class})
+class BookServiceImplBatchUpdateTest {
+
+    @Autowired
+    private BookServiceImpl bookService;
+
+    @SpyBean
+    private JdbcAuthorRepository authorRepository;
+
+    @SpyBean
+    private JdbcGenreRepository genreRepository;
+
+    @DisplayName("должен сохранять корректные книги пакета и возвращать отказы по остальным")
+    @Test
+    void shouldUpdateValidBooksAndReportFailures() {
+        var result = bookService.updateAll(List.of(
+                new BookUpdateDto(1, "BookTitle_1_edited", 2, Set.of(3L, 4L)),
+                new BookUpdateDto(2, "BookTitle_2_edited", 100, Set.of(1L)),
+                new BookUpdateDto(3, "BookTitle_3_edited", 1, Set.of(1L, 100L)),
+                new BookUpdateDto(100, "BookTitle_100", 1, Set.of(1L)),
+                new BookUpdateDto(1, "BookTitle_1_twice", 1, Set.of(1L)),
+                new BookUpdateDto(2, "BookTitle_2_no_genres", 1, Set.of())));
+
+        assertThat(result.updated()).singleElement()
+                .matches(book -> book.getId() == 1 && book.getVersion() == 1);
+        assertThat(result.failures()).extracting(BookUpdateFailure::bookId)
+                .containsExactlyInAnyOrder(1L, 2L, 2L, 3L, 100L);
+
+        var book = bookService.findById(1).orElseThrow();
+        assertThat(book.getTitle()).isEqualTo("BookTitle_1_edited");
+        assertThat(book.getAuthor().getId()).isEqualTo(2);
+        assertThat(book.getGenres()).extracting(Genre::getId).containsExactly(3L, 4L);
+        assertThat(bookService.findById(2).orElseThrow().getTitle()).isEqualTo("BookTitle_2");
+        assertThat(bookService.findById(3).orElseThrow().getTitle()).isEqualTo("BookTitle_3");
+    }
+
+    @DisplayName("должен проверять авторов и жанры всего пакета двумя запросами")
+    @Test
+    void shouldValidateReferencesWithTwoQueries() {
+        List<Long> ids = bookService.insertAll(LongStream.range(0, 2500)
+                        .mapToObj(i -> new BookCreateDto("BatchBook_" + i, i % 3 + 1, Set.of(i % 6 + 1)))
+                        .toList())
+                .stream().map(Book::getId).toList();
+        List<BookUpdateDto> updates = ids.stream()
+                .map(id -> new BookUpdateDto(id, "BatchBook_edited_" + id, id % 3 + 1,
+                        Set.of(id % 6 + 1, (id + 1) % 6 + 1)))
+                .toList();
+        clearInvocations(authorRepository, genreRepository);
+
+        var result = bookService.updateAll(updates);
+
+        assertThat(result.failures()).isEmpty();
+        assertThat(result.updated()).hasSize(ids.size())
+                .allMatch(book -> book.getVersion() == 1 && book.getGenres().size() == 2);
+        verify(authorRepository, times(1)).findAllByIds(anySet());
+        verify(genreRepository, times(1)).findAllByIds(anySet());
+        verify(authorRepository, never()).findById(anyLong());
+        assertThat(bookService.findById(ids.get(ids.size() - 1)).orElseThrow())
+                .extracting(Book::getTitle).isEqualTo("BatchBook_edited_" + ids.get(ids.size() - 1));
+    }
+}
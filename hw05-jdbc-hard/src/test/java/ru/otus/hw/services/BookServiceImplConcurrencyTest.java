@@ -0,0 +1,118 @@
+package ru.otus.hw.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.otus.hw.exceptions.OptimisticLockingConflictException;
+import ru.otus.hw.repositories.JdbcAuthorRepository;
+import ru.otus.hw.repositories.JdbcBookRepository;
+import ru.otus.hw.repositories.JdbcCatalogSnapshotRepository;
+import ru.otus.hw.repositories.JdbcGenreRepository;
+import ru.otus.hw.search.BookSearchIndex;
+import ru.otus.hw.snapshot.CatalogSnapshotHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Несколько потоков одновременно увеличивают счетчик в названии одной книги.
+ * Изменение, для которого кончились попытки, отклоняется целиком, поэтому счетчик и версия
+ * должны совпасть с числом принятых изменений. Тест работает без общей транзакции,
+ * чтобы каждое изменение фиксировалось отдельно.
+ */
+@DisplayName("Сервис книг при конкурентных изменениях ")
+@JdbcTest
+@Import({BookServiceImpl.class, JdbcBookRepository.class, JdbcAuthorRepository.class,
+        JdbcGenreRepository.class, BookSearchIndex.class, JdbcCatalogSnapshotRepository.class,
+        CatalogSnapshotHolder.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookServiceImplConcurrencyTest {
+    private static final int THREADS = 8;
+
+    private static final int UPDATES_PER_THREAD = 100;
+
+    private static final String COUNTER_PREFIX = "Counter_";
+
+    @Autowired
+    private BookServiceImpl bookService;
+
+    private long bookId;
+
+    @BeforeEach
+    void setUp() {
+        bookId = bookService.insert(COUNTER_PREFIX + 0, 1L, Set.of(1L)).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookService.deleteById(bookId);
+    }
+
+    @DisplayName("не должен терять изменения одной книги из разных потоков")
+    @Test
+    void shouldNotLoseConcurrentUpdates() throws Exception {
+        var attempts = new AtomicInteger();
+        var updates = new AtomicInteger();
+        var rejected = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        long elapsedNanos;
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < UPDATES_PER_THREAD; j++) {
+                        try {
+                            bookService.modify(bookId, book -> {
+                                attempts.incrementAndGet();
+                                book.setTitle(COUNTER_PREFIX + (counter(book.getTitle()) + 1));
+                            });
+                            updates.incrementAndGet();
+                        } catch (OptimisticLockingConflictException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            long startNanos = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            elapsedNanos = System.nanoTime() - startNanos;
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Отклоненное изменение не должно попасть в книгу, а принятое - потеряться
+        assertThat(updates.get() + rejected.get()).isEqualTo(THREADS * UPDATES_PER_THREAD);
+        assertThat(updates.get()).as("%d updates, %d rejected after all retries, %d attempts, %.0f updates/s",
+                updates.get(), rejected.get(), attempts.get(), updates.get() * 1e9 / elapsedNanos).isPositive();
+        assertThat(attempts.get()).isGreaterThanOrEqualTo(THREADS * UPDATES_PER_THREAD);
+        assertThat(bookService.findById(bookId)).isPresent()
+                .get()
+                .satisfies(book -> {
+                    assertThat(book.getTitle()).isEqualTo(COUNTER_PREFIX + updates.get());
+                    assertThat(book.getVersion()).isEqualTo(updates.get());
+                });
+    }
+
+    private static int counter(String title) {
+        return Integer.parseInt(title.substring(COUNTER_PREFIX.length()));
+    }
+}
@@ -0,0 +1,89 @@
+package ru.otus.hw.snapshot;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.otus.hw.dto.GenreMatch;
+import ru.otus.hw.events.BooksDeletedEvent;
+import ru.otus.hw.events.BooksSavedEvent;
+import ru.otus.hw.models.Author;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.repositories.JdbcBookRepository;
+import ru.otus.hw.repositories.JdbcCatalogSnapshotRepository;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Хранилище снимка каталога ")
+@JdbcTest
+@Import({JdbcCatalogSnapshotRepository.class, JdbcBookRepository.class})
+class CatalogSnapshotHolderTest {
+    private static final List<CatalogFilter> FILTERS = List.of(CatalogFilter.all(), CatalogFilter.byAuthor(1),
+            CatalogFilter.byAuthor(3), CatalogFilter.byGenres(Set.of(2L, 6L), GenreMatch.ALL),
+            CatalogFilter.byGenres(Set.of(1L, 4L), GenreMatch.ANY), new CatalogFilter(3L, Set.of(1L), GenreMatch.ANY));
+
+    @Autowired
+    private JdbcCatalogSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private JdbcBookRepository bookRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CatalogSnapshotHolder holder;
+
+    @BeforeEach
+    void setUp() {
+        holder = new CatalogSnapshotHolder(snapshotRepository, transactionManager);
+    }
+
+    @DisplayName("должен считать книги с учетом изменений поверх снимка до и после их слияния")
+    @Test
+    void shouldCountChangesOnTopOfSnapshot() {
+        assertThat(holder.count(CatalogFilter.all())).isEqualTo(3);
+
+        var insertedBook = bookRepository.save(new Book(0L, "BookTitle_4", new Author(1L, "Author_1"),
+                List.of(new Genre(6L, "Genre_6"), new Genre(2L, "Genre_2"))));
+        var updatedBook = bookRepository.save(new Book(2L, "BookTitle_2_2", new Author(3L, "Author_3"),
+                List.of(new Genre(1L, "Genre_1"))));
+        bookRepository.deleteById(1L);
+        holder.onBooksSaved(new BooksSavedEvent(List.of(insertedBook, updatedBook)));
+        holder.onBooksDeleted(new BooksDeletedEvent(List.of(1L, 100L)));
+
+        var reloaded = snapshotRepository.load();
+        assertThat(holder.pendingChanges()).isEqualTo(4);
+        assertThat(FILTERS).allSatisfy(filter -> assertThat(holder.count(filter)).isEqualTo(reloaded.count(filter)));
+
+        holder.mergeChanges();
+
+        assertThat(holder.pendingChanges()).isZero();
+        assertThat(FILTERS).allSatisfy(filter -> assertThat(holder.count(filter)).isEqualTo(reloaded.count(filter)));
+    }
+
+    @DisplayName("должен сливать накопленные изменения со снимком в фоне")
+    @Test
+    void shouldMergeChangesInBackground() throws Exception {
+        assertThat(holder.count(CatalogFilter.all())).isEqualTo(3);
+        var author = new Author(2L, "Author_2");
+        var genres = List.of(new Genre(5L, "Genre_5"));
+
+        LongStream.range(0, CatalogSnapshotHolder.MERGE_THRESHOLD).forEach(i -> holder.onBooksSaved(
+                new BooksSavedEvent(List.of(new Book(1000 + i, "Title_" + i, author, genres)))));
+        holder.pendingMerge().get(10, TimeUnit.SECONDS);
+        holder.onBooksDeleted(new BooksDeletedEvent(List.of(1000L)));
+
+        assertThat(holder.pendingChanges()).isEqualTo(1);
+        assertThat(holder.count(CatalogFilter.all())).isEqualTo(2 + CatalogSnapshotHolder.MERGE_THRESHOLD);
+        assertThat(holder.count(CatalogFilter.byAuthor(2))).isEqualTo(CatalogSnapshotHolder.MERGE_THRESHOLD);
+    }
+}
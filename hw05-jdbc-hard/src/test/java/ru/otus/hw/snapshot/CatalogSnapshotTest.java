@@ -0,0 +1,104 @@
+package ru.otus.hw.snapshot;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import ru.otus.hw.dto.GenreMatch;
+import ru.otus.hw.models.Author;
+import ru.otus.hw.models.Book;
+import ru.otus.hw.models.Genre;
+import ru.otus.hw.repositories.JdbcBookRepository;
+import ru.otus.hw.repositories.JdbcCatalogSnapshotRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Колоночный снимок каталога ")
+@JdbcTest
+@Import({JdbcCatalogSnapshotRepository.class, JdbcBookRepository.class})
+class CatalogSnapshotTest {
+
+    @Autowired
+    private JdbcCatalogSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private JdbcBookRepository bookRepository;
+
+    @Autowired
+    private NamedParameterJdbcOperations jdbc;
+
+    @DisplayName("должен считать и отбирать книги так же, как запросы репозитория")
+    @Test
+    void shouldCountAndFilterLikeRepository() {
+        var snapshot = snapshotRepository.load();
+
+        assertThat(snapshot.booksCount()).isEqualTo(3);
+        assertThat(snapshot.count(CatalogFilter.all())).isEqualTo(3);
+        assertThat(snapshot.count(CatalogFilter.byAuthor(2))).isEqualTo(1);
+        assertThat(snapshot.count(CatalogFilter.byAuthor(100))).isZero();
+        assertThat(snapshot.count(CatalogFilter.byGenres(Set.of(1L, 4L, 100L), GenreMatch.ANY))).isEqualTo(2);
+        assertThat(snapshot.count(CatalogFilter.byGenres(Set.of(5L, 6L), GenreMatch.ALL))).isEqualTo(1);
+        assertThat(snapshot.count(CatalogFilter.byGenres(Set.of(1L, 6L), GenreMatch.ALL))).isZero();
+        assertThat(snapshot.count(CatalogFilter.byGenres(Set.of(5L, 100L), GenreMatch.ALL))).isZero();
+        assertThat(snapshot.count(new CatalogFilter(3L, Set.of(6L), GenreMatch.ANY))).isEqualTo(1);
+        assertThat(snapshot.facets()).isEqualTo(bookRepository.findFacets());
+    }
+
+    @DisplayName("должен отличать книгу без автора от книги без названия")
+    @Test
+    void shouldReadNullAuthorAndNullTitle() {
+        jdbc.update("insert into books (title, author_id) values (null, 2), ('NoAuthor', null)", Map.of());
+
+        var snapshot = snapshotRepository.load();
+
+        assertThat(snapshot.booksCount()).isEqualTo(5);
+        assertThat(snapshot.count(CatalogFilter.byAuthor(2))).isEqualTo(2);
+        assertThat(snapshot.facets()).isEqualTo(bookRepository.findFacets());
+    }
+
+    @DisplayName("после слияния с изменениями должен совпадать со снимком, заново прочитанным из БД")
+    @Test
+    void shouldMergeChangesLikeReload() {
+        var snapshot = snapshotRepository.load();
+
+        var insertedBook = bookRepository.save(new Book(0L, "BookTitle_4", new Author(1L, "Author_1"),
+                List.of(new Genre(6L, "Genre_6"), new Genre(2L, "Genre_2"))));
+        var updatedBook = bookRepository.save(new Book(2L, "BookTitle_2_2", new Author(3L, "Author_3"),
+                List.of(new Genre(1L, "Genre_1"))));
+        bookRepository.deleteById(1L);
+        var merged = snapshot.withChanges(List.of(insertedBook, updatedBook), List.of())
+                .withChanges(List.of(), List.of(1L, 100L));
+
+        var reloaded = snapshotRepository.load();
+        assertThat(merged.facets()).isEqualTo(reloaded.facets());
+        assertThat(merged.booksCount()).isEqualTo(3);
+        assertThat(merged.count(CatalogFilter.byGenres(Set.of(2L, 6L), GenreMatch.ALL))).isEqualTo(1);
+        assertThat(merged.count(new CatalogFilter(3L, Set.of(1L), GenreMatch.ANY))).isEqualTo(1);
+        assertThat(merged.count(new CatalogFilter(1L, Set.of(1L), GenreMatch.ANY))).isZero();
+        assertThat(snapshot.booksCount()).isEqualTo(3);
+        assertThat(snapshot.count(new CatalogFilter(1L, Set.of(1L), GenreMatch.ANY))).isEqualTo(1);
+    }
+
+    @DisplayName("должен добавлять новых авторов и жанры и убирать лишние строки из таблицы строк")
+    @Test
+    void shouldExtendDictionariesAndCompactStrings() {
+        var snapshot = snapshotRepository.load();
+        var newAuthor = new Author(4L, "Author_4");
+        var newGenre = new Genre(7L, "Genre_7");
+        for (int i = 0; i < 100; i++) {
+            snapshot = snapshot.withChanges(List.of(new Book(3L, "Title_" + i, newAuthor,
+                    List.of(newGenre, new Genre(1L, "Genre_1")))), List.of());
+        }
+
+        assertThat(snapshot.count(CatalogFilter.byAuthor(4))).isEqualTo(1);
+        assertThat(snapshot.count(CatalogFilter.byGenres(Set.of(1L, 7L), GenreMatch.ALL))).isEqualTo(1);
+        assertThat(snapshot.count(CatalogFilter.byGenres(Set.of(1L), GenreMatch.ANY))).isEqualTo(2);
+        assertThat(snapshot.stringsCount()).isLessThanOrEqualTo(2 * (3 + 4 + 7));
+    }
+}